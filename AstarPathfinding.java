@@ -1,222 +1,580 @@
-import java.util.Set;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
 import java.awt.Point;
 
 /**
- * A pathfinding algorithm (A* pathfinding) to find the shortest path given a Maze.
- * <p> The algorithm uses the distance to the start and to the end and adds them together for each tile
- * to explore only the shortest possible path first but if there is a wall in the way, it will expand outwards
+ * A pathfinding algorithm (A* pathfinding) to find the shortest path given a Maze or any other Grid.
+ * <p> Each tile is given an f value, the cost of the best known path from the start to the tile (g) plus the
+ * estimated distance from the tile to the end (h). The tile with the lowest f value is always explored next, so
+ * the shortest possible paths are explored first but if there is a wall in the way, it will expand outwards
  * to longer paths until a path to the end is found.
+ * <p> The estimate never overestimates the real distance so the first path found to the end is the shortest.
+ * The estimate is a Heuristic and can be changed, along with the TieBreaking policy that picks between tiles
+ * with the same f value. Open mazes have large plateaus of tiles with the same f value and a good tie break
+ * stops the search from exploring all of them.
+ * <p> Searches can also be run in the background with findPathAsync, which can be cancelled and reports its progress.
+ * <p> A search can start from several tiles and stop at any of several goals, the estimate being the lowest estimate
+ * to any goal. findPath uses every start and end of the grid, and findNearestPaths returns the paths to the k
+ * closest goals, all from one search instead of one search for each pair.
  */
 public class AstarPathfinding
 {
-	private Maze maze;
-	private Path path;
-	// Tiles that have already been checked for a path
-	private Set<Point> calculatedTiles;
-	// Comparator to sort points based on their F value
-	private FSumComparator fComparator;
-	// Used to stop recursion once end tile is found
-	private boolean foundPath;
+	/**
+	 * Receives progress reports from a running search
+	 */
+	public interface ProgressListener
+	{
+		/**
+		 * Called every few explored tiles and once more when the search finishes.
+		 * @param nodesExpanded the number of tiles explored so far
+		 * @param bestF the F value of the tile explored last, the length of the shortest path still possible
+		 */
+		void onProgress(int nodesExpanded, int bestF);
+	}
+
+	/**
+	 * Estimates the number of moves from a tile to the end (h).
+	 * <p> The path found is only the shortest if the estimate is never more than the real number of moves.
+	 */
+	public interface Heuristic
+	{
+		/**
+		 * |dx| + |dy|. The real distance when nothing is in the way since moves are horizontal or vertical,
+		 * so it is the closest estimate that doesn't need to know the maze.
+		 */
+		Heuristic MANHATTAN = (x, y, endX, endY) -> Math.abs(endX - x) + Math.abs(endY - y);
+
+		/**
+		 * The larger of |dx| and |dy|. The default, lower than Manhattan so more tiles are explored.
+		 */
+		Heuristic CHEBYSHEV = (x, y, endX, endY) -> Math.max(Math.abs(endX - x), Math.abs(endY - y));
+
+		/**
+		 * The distance if diagonal moves were allowed, the larger of |dx| and |dy| plus (sqrt(2) - 1) times the
+		 * smaller, rounded down. Between Chebyshev and Manhattan.
+		 */
+		Heuristic OCTILE = (x, y, endX, endY) -> {
+			int dx = Math.abs(endX - x), dy = Math.abs(endY - y);
+			int longer = Math.max(dx, dy), shorter = Math.min(dx, dy);
+			// 12 / 29 is just under sqrt(2) - 1 so the estimate is never rounded up
+			return longer + (int)(shorter * 12L / 29);
+		};
+
+		/**
+		 * Returns the estimated number of moves from a tile to the end.
+		 * @param x the x coordinate of the tile
+		 * @param y the y coordinate of the tile
+		 * @param endX the x coordinate of the end
+		 * @param endY the y coordinate of the end
+		 * @return h
+		 */
+		int estimate(int x, int y, int endX, int endY);
+
+		/**
+		 * Returns a heuristic that multiplies another one's estimates.
+		 * <p> Estimates above the real distance make the search head straight for the end and explore far fewer
+		 * tiles, but the path found can be longer than the shortest by up to the same factor.
+		 *
+		 * @param heuristic the heuristic to multiply
+		 * @param percent the weight as a percentage, 100 for no change
+		 * @return weighted heuristic
+		 * @throws IllegalArgumentException if heuristic is null or percent is less than 100
+		 */
+		static Heuristic weighted(Heuristic heuristic, int percent)
+		{
+			if (heuristic == null) throw new IllegalArgumentException("null parameter");
+			if (percent < 100) throw new IllegalArgumentException("percent must be at least 100");
+			return (x, y, endX, endY) -> (int)Math.min(Integer.MAX_VALUE / 2, heuristic.estimate(x, y, endX, endY) * (long)percent / 100);
+		}
+	}
+
+	/**
+	 * Picks which tile to explore first when tiles have the same f value.
+	 */
+	public enum TieBreaking
+	{
+		/**
+		 * The tile with the lowest index (y * width + x). The default.
+		 */
+		TILE_INDEX,
+		/**
+		 * The tile with the highest g, the one furthest along its path and closest to the end.
+		 */
+		HIGHER_G,
+		/**
+		 * The tile closest to the straight line from the start to the end, measured with the cross product of
+		 * the tile's and the start's offsets from the end.
+		 */
+		CROSS_PRODUCT,
+		/**
+		 * The tile queued last, so the search keeps following the tiles it just found.
+		 */
+		LIFO
+	}
+
+	// Largest number of goals the estimate is worked out for, searches with more goals use no estimate since
+	// checking every goal for every tile would cost more than it saves
+	private static final int MAX_ESTIMATED_GOALS = 64;
+
+	// Number of explored tiles between checks for cancellation
+	private static final int CANCEL_CHECK_INTERVAL = 256;
+
+	// x and y offsets of the east, south, west and north neighbors
+	// Must be in clockwise or counter clockwise order or else equal paths are chosen in weird patterns.
+	private static final int[] DIRECTION_X = {1, 0, -1, 0};
+	private static final int[] DIRECTION_Y = {0, 1, 0, -1};
+
+	private Grid maze;
+	private Heuristic heuristic;
+	private TieBreaking tieBreaking;
+	private int width, height;
+	private int startX, startY;
+	private int endX, endY;
+	// Tiles the search starts from, and the goal tiles sorted so they can be binary searched
+	private int[] startTiles;
+	private int[] goalTiles;
+	// Cost of the best known path from the start to each tile (g), indexed by y * width + x. -1 if not reached yet.
+	private int[] gValues;
+	// Tile each tile was reached from in its best known path
+	private int[] parents;
+	// Tiles whose shortest path is already known and don't need to be checked again
+	private boolean[] calculatedTiles;
+	// Tiles to explore next in a binary heap sorted by their F value, then their tie break key, then their index.
+	// Keys hold the F value in the high bits and the tie break key in the low bits, next to the heap's tiles.
+	private long[] heapKeys;
+	private int[] heapTiles;
+	private int heapSize;
+	// Number of tiles queued so far, used by LIFO tie breaking
+	private int queuedCount;
+	// Paths found to each goal, closest first
+	private List<Path> paths;
+	// Number of goals to find before stopping
+	private int goalLimit;
+	// Whether goals are only recorded in reachedGoals instead of being turned into Paths, for cursors
+	private boolean streaming;
+	// Goal tiles reached so far, closest first
+	private int[] reachedGoals;
+	private int reachedCount;
+	// Returns true once the caller no longer wants the result
+	private BooleanSupplier cancelled;
+	private ProgressListener listener;
+	private int reportInterval;
+	private int nodesExpanded;
 
 	/**
 	 * Generates and returns a Path object giving the shortest path from one point to another using the specified maze
-	 * 
-	 * @param maze the Maze to be solved
+	 *
+	 * @param maze the Grid to be solved, such as a Maze
 	 * @return the closest path between the two points in the maze. Returns null if there is no possible path.
 	 * @throws IllegalArgumentException if maze is null
 	 */
-	public static Path findPath(Maze maze)
+	public static Path findPath(Grid maze)
 	{
-		if (maze == null) throw new IllegalArgumentException("null parameter");
-		
-		// Uses a private instance of this class to maintain the algorithm's information
-		AstarPathfinding pathfinder = new AstarPathfinding(maze);
-		if (pathfinder.foundPath) {
-			return pathfinder.path;
-		} else {
-			return null;
-		}
+		return findPath(maze, null, 0);
 	}
-	
-	// Constructor that sets up the algorithm.
-	// An instanced version is used because multiple variables need to be maintained.
-	// It is private so users will only use the static findPath method which is all they need.
-	private AstarPathfinding(Maze maze)
+
+	/**
+	 * Generates and returns the shortest path like findPath(Grid) while reporting the search's progress
+	 *
+	 * @param maze the Grid to be solved, such as a Maze
+	 * @param listener receives the progress, can be null
+	 * @param reportInterval the number of tiles explored between progress reports, 0 to only report when finished
+	 * @return the closest path between the two points in the maze. Returns null if there is no possible path.
+	 * @throws IllegalArgumentException if maze is null or reportInterval is negative
+	 */
+	public static Path findPath(Grid maze, ProgressListener listener, int reportInterval)
 	{
-		this.maze = maze;
-		this.path = new Path();
-		this.calculatedTiles = new HashSet<>();
-		this.fComparator = new FSumComparator(maze);
-		this.foundPath = false;
-		
-		// Add start to beginning of path and to calculatedTiles so it isn't checked for a path again.
-		Point start = maze.getStart();
-		path.push(start);
-		calculatedTiles.add(start);
-		
-		// Begin recursion
-		findPath((int)start.getX(), (int)start.getY());
-	}
-	
-	// Helper method that uses memoization and recursion to explore shortest paths to farthest paths until a valid path is found
-	private void findPath(int x, int y)
-	{
-		Point end = maze.getEnd();
-		if (x == (int)end.getX() && y == (int)end.getY()) {
-			foundPath = true;
-			return;
-		}
-	
-		// Stores the adjacent points and is sorted from lowest F value to highest.
-		List<Point> adjacentTiles = getAdjacentTiles(x, y);
-		// No need to re-test already calculated points
-		calculatedTiles.addAll(adjacentTiles);
-		
-		// Recursively check each nearby tile for the shortest path. Goes in order for closest node to farthest node
-		// Removes the tile from the path if it isn't valid
-		for (Point tile : adjacentTiles) {
-			path.push(tile);
-			findPath((int)tile.getX(), (int)tile.getY());
-			if (foundPath) {
-				return;
-			}
-			path.pop();
-		}
+		return findPath(maze, Heuristic.CHEBYSHEV, TieBreaking.TILE_INDEX, listener, reportInterval);
 	}
-	
-	/*
-	 * Returns a list containing the adjacent tiles of the center tile given x and y.
-	 * Doesn't include tiles that have already been checked and generated via previous path checks
-	 * (this memoized info is in calculatedPoints).
+
+	/**
+	 * Generates and returns a path from the start to the end using the specified heuristic and tie breaking
 	 *
-	 * @param x the x coordinate of the center point
-	 * @param y the y coordinate of the center point
-	 * @return the list of adjacent tiles to check for a path sorted based on their F values
+	 * @param maze the Grid to be solved, such as a Maze
+	 * @param heuristic estimates the distance to the end
+	 * @param tieBreaking picks between tiles with the same f value
+	 * @return the closest path between the two points in the maze if the heuristic never overestimates.
+	 * Returns null if there is no possible path.
+	 * @throws IllegalArgumentException if a parameter is null
 	 */
-	private List<Point> getAdjacentTiles(int x, int y)
-	{
-		List<Point> adjacentTiles = new ArrayList<>();
-		// adds tiles east, sout, west, north of the given x and y point
-		// Must be added in clockwise or counter clockwise order or else it will result in weird
-		// patterns that aren't the shortest distance.
-		addTile(adjacentTiles, x + 1, y);
-		addTile(adjacentTiles, x, y + 1);
-		addTile(adjacentTiles, x - 1, y);
-		addTile(adjacentTiles, x, y - 1);
-		
-		// sort tiles based on f value
-		adjacentTiles.sort(fComparator);
-		
-		return adjacentTiles;
-	}
-	
-	/*
-	 * Adds the point at the specified x and y to the adjacentPoints List if the point isn't contained in calculatedPoints and
-	 * it is within the maze and isn't a wall.
+	public static Path findPath(Grid maze, Heuristic heuristic, TieBreaking tieBreaking)
+	{
+		return findPath(maze, heuristic, tieBreaking, null, 0);
+	}
+
+	/**
+	 * Generates and returns a path using the specified heuristic and tie breaking while reporting the search's progress
 	 *
-	 * @param adjacentPoints the list to add the point to
-	 * @param x the x coordinate of the point to check
-	 * @param y the y coordinate of the point to check
+	 * @param maze the Grid to be solved, such as a Maze
+	 * @param heuristic estimates the distance to the end
+	 * @param tieBreaking picks between tiles with the same f value
+	 * @param listener receives the progress, can be null
+	 * @param reportInterval the number of tiles explored between progress reports, 0 to only report when finished
+	 * @return the closest path between the two points in the maze if the heuristic never overestimates.
+	 * Returns null if there is no possible path.
+	 * @throws IllegalArgumentException if maze, heuristic or tieBreaking is null or reportInterval is negative
 	 */
-	private void addTile(List<Point> adjacentTiles, int x, int y)
+	public static Path findPath(Grid maze, Heuristic heuristic, TieBreaking tieBreaking, ProgressListener listener, int reportInterval)
 	{
-		Point tile = new Point(x, y);
-		Maze.TileType tileType = maze.getTile(x, y);
-		// Adds tile if it hasn't already been tested and isn't out of bounds or a wall
-		if (!calculatedTiles.contains(tile) && (tileType == Maze.TileType.EMPTY || tileType == Maze.TileType.END)) {
-			adjacentTiles.add(tile);
-		}
+		if (maze == null || heuristic == null || tieBreaking == null) throw new IllegalArgumentException("null parameter");
+		if (reportInterval < 0) throw new IllegalArgumentException("reportInterval must not be negative");
+
+		// Uses a private instance of this class to maintain the algorithm's information
+		AstarPathfinding pathfinder = new AstarPathfinding(maze, maze.getStarts(), maze.getEnds(), 1, heuristic, tieBreaking, () -> false, listener, reportInterval);
+		pathfinder.run();
+		return pathfinder.getPath();
 	}
-	
-	/*
-	 * Returns the sum of the moving distance to the start and to the end.
-	 * Used in A* pathfinding and is known as the character 'f'.
-	 * f = g + h
+
+	/**
+	 * Generates and returns the shortest path from any of the starts to any of the goals with a single search
 	 *
-	 * @param maze the maze to be solved
-	 * @param x the x coordinate of the point to calculate
-	 * @param y the y coordinate of the point to calculate
-	 * @return f, g + h
+	 * @param maze the Grid to be solved, such as a Maze
+	 * @param starts the tiles the path can begin at
+	 * @param goals the tiles the path can finish at
+	 * @return the closest path from a start to a goal. Returns null if no goal can be reached.
+	 * @throws IllegalArgumentException if a parameter is null, or a list is empty or has a wall or a tile outside of
+	 * the maze
 	 */
-	private static int calculateF(Maze maze, int x, int y)
+	public static Path findPath(Grid maze, List<Point> starts, List<Point> goals)
 	{
-		return calculateG(maze, x, y) + calculateH(maze, x, y);		
+		List<Path> nearest = findNearestPaths(maze, starts, goals, 1);
+		return nearest.isEmpty() ? null : nearest.get(0);
 	}
-	
-	/*
-	 * Returns the distance from the current point specified by x and y to the start.
-	 * Used in A* pathfinding and is known as the character 'g'.
+
+	/**
+	 * Finds the paths to the k goals closest to any of the starts with a single search.
+	 * <p> The search keeps going after reaching the closest goal until k goals are reached or no more can be.
 	 *
-	 * @param maze the maze to be solved
-	 * @param x the x coordinate of the point to calculate
-	 * @param y the y coordinate of the point to calculate
-	 * @return g
+	 * @param maze the Grid to be solved, such as a Maze
+	 * @param starts the tiles the paths can begin at
+	 * @param goals the tiles the paths can finish at
+	 * @param k the most paths to return
+	 * @return a shortest path to each of the closest goals, from whichever start is closest to it, ordered from shortest
+	 * to longest. Has fewer than k paths if fewer goals can be reached.
+	 * @throws IllegalArgumentException if a parameter is null, a list is empty or has a wall or a tile outside of
+	 * the maze, or k is less than 1
 	 */
-	private static int calculateG(Maze maze, int x, int y)
+	public static List<Path> findNearestPaths(Grid maze, List<Point> starts, List<Point> goals, int k)
 	{
-		Point start = maze.getStart();
-		return calculateTileDistance(x, y, (int)start.getX(), (int)start.getY());
+		if (maze == null || starts == null || goals == null) throw new IllegalArgumentException("null parameter");
+		if (k < 1) throw new IllegalArgumentException("k must be at least 1");
+
+		AstarPathfinding pathfinder = new AstarPathfinding(maze, starts, goals, k, Heuristic.CHEBYSHEV, TieBreaking.TILE_INDEX, () -> false, null, 0);
+		pathfinder.run();
+		return pathfinder.paths;
 	}
-	
-	/*
-	 * Returns the distance from the current point specified by x and y to the end.
-	 * Used in A* pathfinding and is known as the character 'h'.
+
+	/**
+	 * Finds the shortest path like findPath(Grid) but returns a cursor that streams its tiles instead of a Path.
+	 * <p> The cursor takes over the search's parent array and everything else the search used can be collected,
+	 * so no more memory than the search itself is needed however long the path is.
 	 *
-	 * @param maze the maze to be solved
-	 * @param x the x coordinate of the point to calculate
-	 * @param y the y coordinate of the point to calculate
-	 * @return h
+	 * @param maze the Grid to be solved, such as a Maze
+	 * @return a cursor over the closest path between the two points in the maze, which should be closed once read.
+	 * Returns null if there is no possible path.
+	 * @throws IllegalArgumentException if maze is null
 	 */
-	private static int calculateH(Maze maze, int x, int y)
+	public static PathCursor findPathCursor(Grid maze)
 	{
-		Point end = maze.getEnd();
-		return calculateTileDistance(x, y, (int)end.getX(), (int)end.getY());
+		if (maze == null) throw new IllegalArgumentException("null parameter");
+
+		AstarPathfinding pathfinder = new AstarPathfinding(maze, maze.getStarts(), maze.getEnds(), 1, Heuristic.CHEBYSHEV, TieBreaking.TILE_INDEX, () -> false, null, 0);
+		pathfinder.streaming = true;
+		pathfinder.run();
+		if (pathfinder.reachedCount == 0) return null;
+
+		int goal = pathfinder.reachedGoals[0];
+		return new PathCursor(pathfinder.parents, pathfinder.width, pathfinder.height, goal, pathfinder.gValues[goal] + 1);
 	}
-	
-	/*
-	 * Returns the distance between two tiles.
-	 * distance = maximum of (|y2 - y1|, |x2 - x1|)
+
+	/**
+	 * Starts finding the shortest path on the common fork join pool and returns right away.
+	 * @param maze the Grid to be solved, such as a Maze
+	 * @return a future completed with the closest path, or null if there is no possible path
+	 * @throws IllegalArgumentException if maze is null
+	 */
+	public static CompletableFuture<Path> findPathAsync(Grid maze)
+	{
+		return findPathAsync(maze, ForkJoinPool.commonPool(), null, 0);
+	}
+
+	/**
+	 * Starts finding the shortest path on the specified executor and returns right away.
+	 * <p> Cancelling the returned future stops the search soon after, freeing the thread for other work.
 	 *
-	 * @param x1 the x coordinate of the first point
-	 * @param y1 the y coordinate of the first point
-	 * @param x2 the x coordinate of the second point
-	 * @param y2 the y coordinate of the second point
-	 * @return tile distance
+	 * @param maze the Grid to be solved, such as a Maze
+	 * @param executor runs the search
+	 * @param listener receives the progress on the search's thread, can be null
+	 * @param reportInterval the number of tiles explored between progress reports, 0 to only report when finished
+	 * @return a future completed with the closest path, or null if there is no possible path.
+	 * Completed exceptionally if the search fails or the executor rejects it.
+	 * @throws IllegalArgumentException if maze or executor is null or reportInterval is negative
 	 */
-	private static int calculateTileDistance(int x1, int y1, int x2, int y2)
+	public static CompletableFuture<Path> findPathAsync(Grid maze, Executor executor, ProgressListener listener, int reportInterval)
 	{
-		int dx = Math.abs(x2 - x1);
-		int dy = Math.abs(y2 - y1);
-		return dy > dx ? dy : dx;
+		if (maze == null || executor == null) throw new IllegalArgumentException("null parameter");
+		if (reportInterval < 0) throw new IllegalArgumentException("reportInterval must not be negative");
+
+		CompletableFuture<Path> future = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				// The query may have been dropped while waiting for a thread
+				if (future.isDone()) return;
+				try {
+					AstarPathfinding pathfinder = new AstarPathfinding(maze, maze.getStarts(), maze.getEnds(), 1, Heuristic.CHEBYSHEV, TieBreaking.TILE_INDEX, future::isDone, listener, reportInterval);
+					pathfinder.run();
+					future.complete(pathfinder.getPath());
+				} catch (Throwable err) {
+					future.completeExceptionally(err);
+				}
+			});
+		} catch (RuntimeException err) {
+			future.completeExceptionally(err);
+		}
+		return future;
 	}
-	
-	// Compares points using their F values.
-	// Used to sort a list of points to explore shortest paths first (lowest F value points first)
-	private class FSumComparator implements Comparator<Point>
+
+	// Constructor that sets up the algorithm.
+	// An instanced version is used because multiple variables need to be maintained.
+	// It is private so users will only use the static findPath methods which are all they need.
+	private AstarPathfinding(Grid maze, List<Point> starts, List<Point> goals, int goalLimit, Heuristic heuristic, TieBreaking tieBreaking,
+		BooleanSupplier cancelled, ProgressListener listener, int reportInterval)
 	{
-		Maze maze;
-		
-		public FSumComparator(Maze maze)
-		{
-			this.maze = maze;
+		this.maze = maze;
+		this.heuristic = heuristic;
+		this.tieBreaking = tieBreaking;
+		this.width = maze.getWidth();
+		this.height = maze.getHeight();
+		this.startTiles = toTiles(starts);
+		this.goalTiles = toTiles(goals);
+		Arrays.sort(goalTiles);
+		this.goalLimit = goalLimit;
+		// Cross product tie breaking uses the line from the first start to the first goal
+		this.startX = starts.get(0).x;
+		this.startY = starts.get(0).y;
+		this.endX = goals.get(0).x;
+		this.endY = goals.get(0).y;
+		this.paths = new ArrayList<>();
+		this.reachedGoals = new int[Math.min(goalLimit, goalTiles.length)];
+		this.gValues = new int[width * height];
+		this.parents = new int[width * height];
+		this.calculatedTiles = new boolean[width * height];
+		this.heapKeys = new long[64];
+		this.heapTiles = new int[64];
+		this.cancelled = cancelled;
+		this.listener = listener;
+		this.reportInterval = reportInterval;
+		Arrays.fill(gValues, -1);
+	}
+
+	// Converts points to tile indexes, checking that every point is a passable tile inside the maze
+	private int[] toTiles(List<Point> points)
+	{
+		if (points.isEmpty()) throw new IllegalArgumentException("start and goal lists must not be empty");
+		int[] tiles = new int[points.size()];
+		for (int i = 0; i < tiles.length; i++) {
+			Point point = points.get(i);
+			if (point == null) throw new IllegalArgumentException("null parameter");
+			if (point.x < 0 || point.y < 0 || point.x >= width || point.y >= height) {
+				throw new IllegalArgumentException("starts and goals must be inside the maze");
+			}
+			if (!maze.isPassable(point.x, point.y)) {
+				throw new IllegalArgumentException("starts and goals must be passable tiles");
+			}
+			tiles[i] = point.y * width + point.x;
 		}
-	
-		// Compares two points using their F values
-		public int compare(Point p1, Point p2)
-		{
-			int f1 = calculateF(maze, (int)p1.getX(), (int)p1.getY());
-			int f2 = calculateF(maze, (int)p2.getX(), (int)p2.getY());
-			if (f1 == f2) {
-				return 0;
-			} else if (f1 > f2) {
-				return 1;
-			} else {
-				return -1;
+		return tiles;
+	}
+
+	// Runs the search and stores the paths found
+	private void run()
+	{
+		for (int startTile : startTiles) {
+			if (gValues[startTile] == 0) continue;
+			gValues[startTile] = 0;
+			addOpenTile(startTile);
+		}
+		search();
+	}
+
+	// Returns the shortest path found, null if no goal was reached
+	private Path getPath()
+	{
+		return paths.isEmpty() ? null : paths.get(0);
+	}
+
+	/*
+	 * Explores tiles from lowest to highest F value until enough goals are reached, adding the path to each goal
+	 * as it is reached. Stops early if every reachable tile was checked or the search was cancelled.
+	 */
+	private void search()
+	{
+		Grid grid = maze;
+		int f = 0;
+		while (heapSize > 0) {
+			int tile = heapTiles[0];
+			long key = heapKeys[0];
+			removeFirstOpenTile();
+			// A tile can be queued more than once if a shorter path to it is found later
+			if (calculatedTiles[tile]) continue;
+			calculatedTiles[tile] = true;
+			f = (int)(key >>> 32);
+			nodesExpanded++;
+
+			if (nodesExpanded % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) return;
+			if (listener != null && reportInterval > 0 && nodesExpanded % reportInterval == 0) {
+				listener.onProgress(nodesExpanded, f);
 			}
+
+			// Goals are reached in order of distance since f never goes down
+			if (Arrays.binarySearch(goalTiles, tile) >= 0) {
+				reachedGoals[reachedCount++] = tile;
+				if (!streaming) paths.add(buildPath(tile));
+				if (reachedCount == goalLimit) {
+					reportFinished(f);
+					return;
+				}
+			}
+
+			int x = tile % width;
+			int y = tile / width;
+			int g = gValues[tile] + 1;
+			for (int direction = 0; direction < 4; direction++) {
+				int nextX = x + DIRECTION_X[direction];
+				int nextY = y + DIRECTION_Y[direction];
+				// The only call into the grid in the loop, inlined by the JIT when only one Grid class is used
+				if (!grid.isPassable(nextX, nextY)) continue;
+
+				int next = nextY * width + nextX;
+				if (!calculatedTiles[next] && (gValues[next] == -1 || g < gValues[next])) {
+					gValues[next] = g;
+					parents[next] = tile;
+					addOpenTile(next);
+				}
+			}
+		}
+
+		reportFinished(f);
+	}
+
+	// Sends the final progress report once the search is over
+	private void reportFinished(int f)
+	{
+		if (listener != null) {
+			listener.onProgress(nodesExpanded, f);
+		}
+	}
+
+	// Queues the tile to be explored using its current g value
+	private void addOpenTile(int tile)
+	{
+		int x = tile % width, y = tile / width;
+		int g = gValues[tile];
+		int f = g + estimateDistance(x, y);
+
+		// Lower keys are explored first
+		int tieKey;
+		switch (tieBreaking) {
+			case HIGHER_G:
+				tieKey = Integer.MAX_VALUE - g;
+				break;
+			case CROSS_PRODUCT:
+				long cross = Math.abs((long)(x - endX) * (startY - endY) - (long)(startX - endX) * (y - endY));
+				tieKey = (int)Math.min(cross, Integer.MAX_VALUE);
+				break;
+			case LIFO:
+				tieKey = Integer.MAX_VALUE - queuedCount;
+				break;
+			default:
+				tieKey = 0;
+		}
+		if (queuedCount < Integer.MAX_VALUE) queuedCount++;
+
+		if (heapSize == heapKeys.length) {
+			heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+			heapTiles = Arrays.copyOf(heapTiles, heapSize * 2);
+		}
+		long key = ((long)f << 32) | tieKey;
+
+		// Move the new tile up past every parent that should be explored after it
+		int index = heapSize++;
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!isBefore(key, tile, heapKeys[parent], heapTiles[parent])) break;
+			heapKeys[index] = heapKeys[parent];
+			heapTiles[index] = heapTiles[parent];
+			index = parent;
+		}
+		heapKeys[index] = key;
+		heapTiles[index] = tile;
+	}
+
+	// Removes the first tile of the heap, moving the last tile down from the top to fill its place
+	private void removeFirstOpenTile()
+	{
+		heapSize--;
+		long key = heapKeys[heapSize];
+		int tile = heapTiles[heapSize];
+		int index = 0;
+		while (true) {
+			int child = index * 2 + 1;
+			if (child >= heapSize) break;
+			if (child + 1 < heapSize && isBefore(heapKeys[child + 1], heapTiles[child + 1], heapKeys[child], heapTiles[child])) {
+				child++;
+			}
+			if (!isBefore(heapKeys[child], heapTiles[child], key, tile)) break;
+			heapKeys[index] = heapKeys[child];
+			heapTiles[index] = heapTiles[child];
+			index = child;
+		}
+		heapKeys[index] = key;
+		heapTiles[index] = tile;
+	}
+
+	// Returns whether the first heap entry should be explored before the second
+	private static boolean isBefore(long key, int tile, long otherKey, int otherTile)
+	{
+		return key < otherKey || (key == otherKey && tile < otherTile);
+	}
+
+	// Follows the parents from the goal back to its start and returns the moves in order from the start
+	private Path buildPath(int goalTile)
+	{
+		int[] tiles = new int[gValues[goalTile] + 1];
+		int tile = goalTile;
+		for (int i = tiles.length - 1; i >= 0; i--) {
+			tiles[i] = tile;
+			tile = parents[tile];
+		}
+
+		Path result = new Path();
+		for (int pathTile : tiles) {
+			result.push(pathTile % width, pathTile / width);
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the estimated distance from the tile to the closest goal (h).
+	 *
+	 * @param x the x coordinate of the tile
+	 * @param y the y coordinate of the tile
+	 * @return h
+	 */
+	private int estimateDistance(int x, int y)
+	{
+		if (goalTiles.length == 1) return heuristic.estimate(x, y, endX, endY);
+		if (goalTiles.length > MAX_ESTIMATED_GOALS) return 0;
+
+		int estimate = Integer.MAX_VALUE;
+		for (int goal : goalTiles) {
+			estimate = Math.min(estimate, heuristic.estimate(x, y, goal % width, goal / width));
 		}
+		return estimate;
 	}
 }
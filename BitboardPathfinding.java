@@ -0,0 +1,271 @@
+import java.util.Arrays;
+
+/**
+ * A breadth first search that moves the whole frontier one step at a time using bit operations (bitboards).
+ * <p> Open tiles, visited tiles and the frontier are stored one bit per tile with 64 tiles of a row in each long.
+ * The next frontier of a block of 64 tiles is the current frontier shifted one tile east and west, plus the
+ * frontier of the rows above and below, limited to open tiles that haven't been visited. This handles 64 tiles
+ * in a handful of instructions instead of checking every neighbor of every tile one at a time.
+ * <p> Each frontier is a distance layer, every tile in it is the same number of moves from the start.
+ * The layers are recorded and the shortest path is found by walking back from the end through them.
+ * <p> Works best on open mazes where the frontier is wide. Each layer costs time for every row the frontier
+ * spans, so long winding corridors are better handled by AstarPathfinding or MazeGraph.
+ */
+public class BitboardPathfinding
+{
+	private int width, height;
+	private int wordsPerRow;
+	private int startX, startY, endX, endY;
+	// One bit per tile, row y starts at y * wordsPerRow
+	private long[] open, visited, frontier, next;
+	// Rows the frontier is in
+	private int firstRow, lastRow;
+	// First and last frontier word of each row, -1 for rows without any frontier tiles
+	private int[] firstWords, lastWords, nextFirstWords, nextLastWords;
+
+	// The recorded layers. Layer d holds the non-empty frontier words from layerStarts[d] up to layerStarts[d + 1]
+	// as pairs of the word's index and its bits, in increasing order of index.
+	private int[] layerStarts;
+	private int layerCount;
+	private int[] layerIndexes;
+	private long[] layerWords;
+	private int layerSize;
+
+	/**
+	 * Generates and returns a Path object giving the shortest path from the start to the end of the maze
+	 *
+	 * @param maze the Grid to be solved, such as a Maze
+	 * @return the closest path between the two points in the maze. Returns null if there is no possible path.
+	 * @throws IllegalArgumentException if maze is null
+	 */
+	public static Path findPath(Grid maze)
+	{
+		if (maze == null) throw new IllegalArgumentException("null parameter");
+
+		BitboardPathfinding pathfinder = new BitboardPathfinding(maze);
+		int distance = pathfinder.flood(true);
+		if (distance == -1) return null;
+		return pathfinder.walkBack(distance);
+	}
+
+	/**
+	 * Returns whether there is any path from the start to the end of the maze.
+	 * <p> Runs the same search as findPath without recording the layers.
+	 * @param maze the Grid to check
+	 * @return true if the end can be reached from the start
+	 * @throws IllegalArgumentException if maze is null
+	 */
+	public static boolean isReachable(Grid maze)
+	{
+		if (maze == null) throw new IllegalArgumentException("null parameter");
+
+		return new BitboardPathfinding(maze).flood(false) != -1;
+	}
+
+	// Constructor that converts the maze into bitboards.
+	// It is private so users will only use the static methods which are all they need.
+	private BitboardPathfinding(Grid maze)
+	{
+		width = maze.getWidth();
+		height = maze.getHeight();
+		wordsPerRow = (width + 63) >>> 6;
+		startX = maze.getStart().x;
+		startY = maze.getStart().y;
+		endX = maze.getEnd().x;
+		endY = maze.getEnd().y;
+
+		open = new long[wordsPerRow * height];
+		if (maze instanceof BitsetGrid) {
+			// Already stored as bits, only the words need to be inverted
+			BitsetGrid bits = (BitsetGrid)maze;
+			long lastWordMask = width % 64 == 0 ? -1L : (1L << width) - 1;
+			for (int y = 0; y < height; y++) {
+				for (int word = 0; word < wordsPerRow; word++) {
+					long mask = word == wordsPerRow - 1 ? lastWordMask : -1L;
+					open[y * wordsPerRow + word] = ~bits.getWallWord(y, word) & mask;
+				}
+			}
+		} else {
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					if (maze.isPassable(x, y)) open[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Moves the frontier out from the start one layer at a time until it reaches the end or runs out of tiles.
+	 *
+	 * @param record true to record every layer for walkBack
+	 * @return the distance from the start to the end, -1 if the end can't be reached
+	 */
+	private int flood(boolean record)
+	{
+		visited = new long[open.length];
+		frontier = new long[open.length];
+		next = new long[open.length];
+		firstWords = new int[height];
+		lastWords = new int[height];
+		nextFirstWords = new int[height];
+		nextLastWords = new int[height];
+		Arrays.fill(firstWords, -1);
+		Arrays.fill(nextFirstWords, -1);
+		if (record) {
+			layerStarts = new int[64];
+			layerIndexes = new int[64];
+			layerWords = new long[64];
+		}
+
+		int startIndex = startY * wordsPerRow + (startX >>> 6);
+		frontier[startIndex] = 1L << startX;
+		visited[startIndex] = frontier[startIndex];
+		firstWords[startY] = startX >>> 6;
+		lastWords[startY] = startX >>> 6;
+		firstRow = startY;
+		lastRow = startY;
+		if (record) recordLayer();
+
+		int endIndex = endY * wordsPerRow + (endX >>> 6);
+		long endBit = 1L << endX;
+		for (int distance = 0; ; distance++) {
+			if ((frontier[endIndex] & endBit) != 0) return distance;
+			if (!advance()) return -1;
+			if (record) recordLayer();
+		}
+	}
+
+	/*
+	 * Replaces the frontier with every unvisited open tile next to it.
+	 * <p> Only the words of each row between the first and last frontier words of the rows around it are computed,
+	 * so a thin frontier crossing a wide maze costs a few words per row instead of the whole row.
+	 *
+	 * @return false if the new frontier is empty
+	 */
+	private boolean advance()
+	{
+		int from = Math.max(0, firstRow - 1);
+		int to = Math.min(height - 1, lastRow + 1);
+		int newFirst = -1, newLast = -1;
+		for (int y = from; y <= to; y++) {
+			// Words that can be reached from the frontier words in this row and the rows above and below
+			int low = Integer.MAX_VALUE, high = -1;
+			for (int row = Math.max(y - 1, firstRow); row <= Math.min(y + 1, lastRow); row++) {
+				if (firstWords[row] == -1) continue;
+				int spread = row == y ? 1 : 0;
+				low = Math.min(low, Math.max(0, firstWords[row] - spread));
+				high = Math.max(high, Math.min(wordsPerRow - 1, lastWords[row] + spread));
+			}
+
+			int rowStart = y * wordsPerRow;
+			int nextFirst = -1, nextLast = -1;
+			for (int word = low; word <= high; word++) {
+				int index = rowStart + word;
+				long current = frontier[index];
+				// East and west neighbors, carrying the tiles that cross into the next word
+				long spread = current << 1 | current >>> 1;
+				if (word > 0) spread |= frontier[index - 1] >>> 63;
+				if (word < wordsPerRow - 1) spread |= frontier[index + 1] << 63;
+				if (y > 0) spread |= frontier[index - wordsPerRow];
+				if (y < height - 1) spread |= frontier[index + wordsPerRow];
+
+				long reached = spread & open[index] & ~visited[index];
+				if (reached == 0) continue;
+				next[index] = reached;
+				visited[index] |= reached;
+				if (nextFirst == -1) nextFirst = word;
+				nextLast = word;
+			}
+			nextFirstWords[y] = nextFirst;
+			nextLastWords[y] = nextLast;
+
+			if (nextFirst != -1) {
+				if (newFirst == -1) newFirst = y;
+				newLast = y;
+			}
+		}
+
+		// Clear the old frontier so the arrays can be swapped and reused
+		for (int y = firstRow; y <= lastRow; y++) {
+			if (firstWords[y] == -1) continue;
+			Arrays.fill(frontier, y * wordsPerRow + firstWords[y], y * wordsPerRow + lastWords[y] + 1, 0);
+			firstWords[y] = -1;
+		}
+		long[] swap = frontier;
+		frontier = next;
+		next = swap;
+		int[] swapWords = firstWords;
+		firstWords = nextFirstWords;
+		nextFirstWords = swapWords;
+		swapWords = lastWords;
+		lastWords = nextLastWords;
+		nextLastWords = swapWords;
+
+		if (newFirst == -1) return false;
+		firstRow = newFirst;
+		lastRow = newLast;
+		return true;
+	}
+
+	// Stores the non-empty words of the frontier as the next layer
+	private void recordLayer()
+	{
+		if (layerCount + 2 > layerStarts.length) {
+			layerStarts = Arrays.copyOf(layerStarts, layerStarts.length * 2);
+		}
+		layerStarts[layerCount] = layerSize;
+		for (int y = firstRow; y <= lastRow; y++) {
+			if (firstWords[y] == -1) continue;
+			for (int index = y * wordsPerRow + firstWords[y]; index <= y * wordsPerRow + lastWords[y]; index++) {
+				if (frontier[index] == 0) continue;
+				if (layerSize == layerIndexes.length) {
+					layerIndexes = Arrays.copyOf(layerIndexes, layerSize * 2);
+					layerWords = Arrays.copyOf(layerWords, layerSize * 2);
+				}
+				layerIndexes[layerSize] = index;
+				layerWords[layerSize] = frontier[index];
+				layerSize++;
+			}
+		}
+		layerCount++;
+		layerStarts[layerCount] = layerSize;
+	}
+
+	/*
+	 * Walks from the end back to the start, each step moving to a neighbor in the layer before.
+	 *
+	 * @param distance the layer the end is in
+	 * @return the path from the start to the end
+	 */
+	private Path walkBack(int distance)
+	{
+		int[] xs = new int[distance + 1];
+		int[] ys = new int[distance + 1];
+		int x = endX, y = endY;
+		for (int layer = distance; layer > 0; layer--) {
+			xs[layer] = x;
+			ys[layer] = y;
+			if (isInLayer(layer - 1, x + 1, y)) x++;
+			else if (isInLayer(layer - 1, x, y + 1)) y++;
+			else if (isInLayer(layer - 1, x - 1, y)) x--;
+			else y--;
+		}
+		xs[0] = x;
+		ys[0] = y;
+
+		Path path = new Path();
+		for (int i = 0; i <= distance; i++) {
+			path.push(xs[i], ys[i]);
+		}
+		return path;
+	}
+
+	// Returns whether the tile is in the recorded layer, found with a binary search over the layer's words
+	private boolean isInLayer(int layer, int x, int y)
+	{
+		if (x < 0 || y < 0 || x >= width || y >= height) return false;
+		int index = y * wordsPerRow + (x >>> 6);
+		int found = Arrays.binarySearch(layerIndexes, layerStarts[layer], layerStarts[layer + 1], index);
+		return found >= 0 && (layerWords[found] & (1L << x)) != 0;
+	}
+}
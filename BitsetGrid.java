@@ -0,0 +1,101 @@
+import java.util.List;
+import java.awt.Point;
+
+/**
+ * A Grid that stores one bit per tile, set for walls.
+ * <p> Each row starts at a new long so bit (x % 64) of word (x / 64) in a row is tile x, the same layout as
+ * the binary format written by MazeGenerator. Stores the tiles in a thirty-second of the memory of an array of tile
+ * type references (a sixty-fourth with eight byte references). A search on the grid still allocates its own arrays, about 9 bytes per tile for AstarPathfinding,
+ * on top of the tiles.
+ */
+public final class BitsetGrid implements Grid
+{
+	private final int width, height;
+	private final int wordsPerRow;
+	// Wall bits of each row, row y starts at y * wordsPerRow
+	private final long[] walls;
+	private final Point start, end;
+	private final List<Point> starts, ends;
+
+	/**
+	 * Copies the layout of another grid.
+	 * @param source the grid to copy
+	 * @throws IllegalArgumentException if source is null
+	 */
+	public BitsetGrid(Grid source)
+	{
+		if (source == null) throw new IllegalArgumentException("null parameter");
+
+		this.width = source.getWidth();
+		this.height = source.getHeight();
+		this.wordsPerRow = (width + 63) >>> 6;
+		this.walls = new long[wordsPerRow * height];
+		this.start = source.getStart();
+		this.end = source.getEnd();
+		this.starts = List.copyOf(source.getStarts());
+		this.ends = List.copyOf(source.getEnds());
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (!source.isPassable(x, y)) {
+					walls[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+				}
+			}
+		}
+	}
+
+	@Override
+	public int getWidth()
+	{
+		return width;
+	}
+
+	@Override
+	public int getHeight()
+	{
+		return height;
+	}
+
+	@Override
+	public boolean isPassable(int x, int y)
+	{
+		if (x < 0 || y < 0 || x >= width || y >= height) return false;
+		// Shifting a long only uses the lowest 6 bits of x
+		return (walls[y * wordsPerRow + (x >>> 6)] & (1L << x)) == 0;
+	}
+
+	/**
+	 * Returns 64 tiles of a row at once, bit i is set if tile (word * 64 + i) is a wall.
+	 * <p> Bits past the width of the grid are never set.
+	 * @param y the row
+	 * @param word the index of the 64 tile block in the row
+	 * @return the wall bits
+	 */
+	public long getWallWord(int y, int word)
+	{
+		return walls[y * wordsPerRow + word];
+	}
+
+	@Override
+	public Point getStart()
+	{
+		return new Point(start);
+	}
+
+	@Override
+	public Point getEnd()
+	{
+		return new Point(end);
+	}
+
+	@Override
+	public List<Point> getStarts()
+	{
+		return Points.copy(starts);
+	}
+
+	@Override
+	public List<Point> getEnds()
+	{
+		return Points.copy(ends);
+	}
+}
@@ -0,0 +1,87 @@
+import java.util.List;
+import java.awt.Point;
+
+/**
+ * A Grid that stores one byte per tile in a single array.
+ * <p> Stores the tiles in a quarter of the memory of an array of tile type references (four bytes each with the
+ * compressed references of heaps under 32 GB, an eighth with eight byte references) and keeps rows next to each
+ * other, so the tiles around a searched tile are usually already in the cache. A search on the grid still allocates
+ * its own arrays, about 9 bytes per tile for AstarPathfinding, on top of the tiles.
+ */
+public final class ByteGrid implements Grid
+{
+	// Values stored for each tile
+	private static final byte EMPTY = 0, WALL = 1;
+
+	private final int width, height;
+	// Tiles indexed by y * width + x
+	private final byte[] tiles;
+	private final Point start, end;
+	private final List<Point> starts, ends;
+
+	/**
+	 * Copies the layout of another grid.
+	 * @param source the grid to copy
+	 * @throws IllegalArgumentException if source is null
+	 */
+	public ByteGrid(Grid source)
+	{
+		if (source == null) throw new IllegalArgumentException("null parameter");
+
+		this.width = source.getWidth();
+		this.height = source.getHeight();
+		this.tiles = new byte[width * height];
+		this.start = source.getStart();
+		this.end = source.getEnd();
+		this.starts = List.copyOf(source.getStarts());
+		this.ends = List.copyOf(source.getEnds());
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				tiles[y * width + x] = source.isPassable(x, y) ? EMPTY : WALL;
+			}
+		}
+	}
+
+	@Override
+	public int getWidth()
+	{
+		return width;
+	}
+
+	@Override
+	public int getHeight()
+	{
+		return height;
+	}
+
+	@Override
+	public boolean isPassable(int x, int y)
+	{
+		if (x < 0 || y < 0 || x >= width || y >= height) return false;
+		return tiles[y * width + x] == EMPTY;
+	}
+
+	@Override
+	public Point getStart()
+	{
+		return new Point(start);
+	}
+
+	@Override
+	public Point getEnd()
+	{
+		return new Point(end);
+	}
+
+	@Override
+	public List<Point> getStarts()
+	{
+		return Points.copy(starts);
+	}
+
+	@Override
+	public List<Point> getEnds()
+	{
+		return Points.copy(ends);
+	}
+}
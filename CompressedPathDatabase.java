@@ -0,0 +1,423 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.awt.Point;
+
+import java.lang.IllegalArgumentException;
+import java.io.IOException;
+
+/**
+ * A compressed path database (CPD): the first move of a shortest path from every open tile to every other open tile
+ * of a maze, computed ahead of time so paths can be found with table lookups and no search at all.
+ * <p> The open tiles are numbered in depth first order so tiles next to each other in the maze are usually next to
+ * each other in the numbering. From any source, the first move towards a group of nearby targets is usually the
+ * same, so each source's moves in target order are stored as runs of the same move (run length encoding). A query
+ * binary searches the source's runs for the target, takes that step, and repeats from the new tile.
+ * <p> The database is built with build, which runs a breadth first search from every source in parallel, and is
+ * written to a file that is memory-mapped when loaded so every process answering queries shares one copy.
+ * Building takes time and disk space that grow with the square of the number of open tiles, so it is meant for
+ * static maps that get many queries.
+ */
+public final class CompressedPathDatabase
+{
+	/**
+	 * First int of a database file, "CPDB" in ASCII
+	 */
+	public static final int MAGIC = 0x43504442;
+	/**
+	 * Version of the file format
+	 */
+	public static final int VERSION = 1;
+
+	// x and y offsets of the east, south, west and north neighbors
+	private static final int[] DIRECTION_X = {1, 0, -1, 0};
+	private static final int[] DIRECTION_Y = {0, 1, 0, -1};
+	// Move stored for targets that can't be reached from the source
+	private static final int NO_MOVE = 4;
+	// Runs hold the first target of the run above the lowest MOVE_BITS bits and the move in them
+	private static final int MOVE_BITS = 3;
+	// Size of the header before the tile positions
+	private static final int HEADER_BYTES = 40;
+	// Largest number of bytes mapped in one chunk
+	private static final int CHUNK_BITS = 30;
+	// Number of sources compressed at once before being written
+	private static final int BATCH_SIZE = 4096;
+
+	private final int width, height;
+	private final int cellCount;
+	private final Point start, end;
+	private final long positionsOffset, offsetsOffset, runsOffset;
+	private final ByteBuffer[] chunks;
+
+	/**
+	 * Maps a database file written by build.
+	 * @param file the database file
+	 * @throws IllegalArgumentException if file is null or isn't a path database
+	 * @throws IOException if the file can't be read
+	 */
+	public CompressedPathDatabase(File file)
+		throws IOException
+	{
+		if (file == null) throw new IllegalArgumentException("null parameter");
+
+		try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			// The mapping stays valid after the channel is closed
+			chunks = new ByteBuffer[(int)((size + (1L << CHUNK_BITS) - 1) >>> CHUNK_BITS)];
+			for (int i = 0; i < chunks.length; i++) {
+				long offset = (long)i << CHUNK_BITS;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(1L << CHUNK_BITS, size - offset));
+			}
+
+			if (size < HEADER_BYTES || getInt(0) != MAGIC) {
+				throw new IllegalArgumentException("File is not a path database");
+			}
+			if (getInt(4) != VERSION) {
+				throw new IllegalArgumentException("Unsupported path database version");
+			}
+			width = getInt(8);
+			height = getInt(12);
+			cellCount = getInt(16);
+			start = new Point(getInt(20), getInt(24));
+			end = new Point(getInt(28), getInt(32));
+
+			positionsOffset = HEADER_BYTES;
+			offsetsOffset = getOffsetsOffset(width, height);
+			runsOffset = offsetsOffset + (cellCount + 1L) * Long.BYTES;
+			if (width <= 0 || height <= 0 || size < runsOffset || size < runsOffset + getLong(offsetsOffset + (long)cellCount * Long.BYTES) * Integer.BYTES) {
+				throw new IllegalArgumentException("Path database file is truncated");
+			}
+		}
+	}
+
+	/**
+	 * Computes the first moves between every pair of open tiles of the maze and writes the compressed database.
+	 * <p> The sources are split between every available processor.
+	 *
+	 * @param maze the maze to build the database for
+	 * @param file the file to write to
+	 * @throws IllegalArgumentException if a parameter is null or the maze is too large
+	 * @throws IOException if the file can't be written
+	 */
+	public static void build(Grid maze, File file)
+		throws IOException
+	{
+		if (maze == null || file == null) throw new IllegalArgumentException("null parameter");
+		int width = maze.getWidth(), height = maze.getHeight();
+		if ((long)width * height > Integer.MAX_VALUE) throw new IllegalArgumentException("maze has too many tiles");
+
+		// Position of each tile in depth first order, -1 for walls, and the tile at each position
+		int[] positions = new int[width * height];
+		int[] order = numberTiles(maze, positions);
+		int cellCount = order.length;
+		if (cellCount >= 1 << (Integer.SIZE - 1 - MOVE_BITS)) throw new IllegalArgumentException("maze has too many open tiles");
+
+		try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+			output.setLength(0);
+			FileChannel channel = output.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+			int[] header = {MAGIC, VERSION, width, height, cellCount,
+				maze.getStart().x, maze.getStart().y, maze.getEnd().x, maze.getEnd().y, 0};
+			writeInts(channel, buffer, 0, header, header.length);
+			writeInts(channel, buffer, HEADER_BYTES, positions, positions.length);
+
+			long offsetsOffset = getOffsetsOffset(width, height);
+			long runsOffset = offsetsOffset + (cellCount + 1L) * Long.BYTES;
+			long[] runOffsets = new long[cellCount + 1];
+			long runCount = 0;
+			int workers = Runtime.getRuntime().availableProcessors();
+			// Each worker keeps its own search arrays for every batch, so they are only allocated once
+			SourceCompressor[] compressors = new SourceCompressor[workers];
+			for (int worker = 0; worker < workers; worker++) {
+				compressors[worker] = new SourceCompressor(maze, order);
+			}
+			for (int batchStart = 0; batchStart < cellCount; batchStart += BATCH_SIZE) {
+				int first = batchStart;
+				int[][] runs = new int[Math.min(BATCH_SIZE, cellCount - first)][];
+				// Each worker gets every workers-th source of the batch
+				IntStream.range(0, workers).parallel().forEach(worker -> {
+					SourceCompressor compressor = compressors[worker];
+					for (int i = worker; i < runs.length; i += workers) {
+						runs[i] = compressor.compress(first + i);
+					}
+				});
+
+				for (int i = 0; i < runs.length; i++) {
+					runOffsets[first + i] = runCount;
+					writeInts(channel, buffer, runsOffset + runCount * Integer.BYTES, runs[i], runs[i].length);
+					runCount += runs[i].length;
+				}
+			}
+			runOffsets[cellCount] = runCount;
+			writeLongs(channel, buffer, offsetsOffset, runOffsets);
+		}
+	}
+
+	/**
+	 * Builds a database for a maze file from the command line.
+	 * <p> Usage: java CompressedPathDatabase mazeFile databaseFile
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args)
+		throws IOException
+	{
+		if (args.length < 2) {
+			System.out.println("Usage: java CompressedPathDatabase mazeFile databaseFile");
+			return;
+		}
+
+		File databaseFile = new File(args[1]);
+		build(new Maze(new File(args[0])), databaseFile);
+		CompressedPathDatabase database = new CompressedPathDatabase(databaseFile);
+		System.out.println(database.getCellCount() + " open tiles, " + database.getRunCount() + " runs, " + databaseFile.length() + " bytes");
+	}
+
+	/**
+	 * Returns the number of open tiles in the database
+	 * @return open tile count
+	 */
+	public int getCellCount()
+	{
+		return cellCount;
+	}
+
+	/**
+	 * Returns the number of runs stored for every source together, a measure of how well the moves compressed.
+	 * Without compression there would be one move for every pair of open tiles.
+	 * @return run count
+	 */
+	public long getRunCount()
+	{
+		return getLong(offsetsOffset + (long)cellCount * Long.BYTES);
+	}
+
+	/**
+	 * Returns the shortest path between the start and end of the maze the database was built for
+	 * @return the closest path between the two points in the maze. Returns null if there is no possible path.
+	 */
+	public Path findPath()
+	{
+		return findPath(start, end);
+	}
+
+	/**
+	 * Returns a shortest path between two tiles by following the stored first moves
+	 *
+	 * @param from the tile the path starts at
+	 * @param to the tile the path ends at
+	 * @return the closest path between the two tiles. Returns null if either tile is a wall or there is no possible path.
+	 * @throws IllegalArgumentException if a parameter is null
+	 */
+	public Path findPath(Point from, Point to)
+	{
+		if (from == null || to == null) throw new IllegalArgumentException("null parameter");
+
+		int source = getPosition(from.x, from.y);
+		int target = getPosition(to.x, to.y);
+		if (source == -1 || target == -1) return null;
+
+		Path path = new Path();
+		int x = from.x, y = from.y;
+		path.push(x, y);
+		while (source != target) {
+			int move = getFirstMove(source, target);
+			if (move == NO_MOVE) return null;
+			x += DIRECTION_X[move];
+			y += DIRECTION_Y[move];
+			path.push(x, y);
+			source = getPosition(x, y);
+		}
+		return path;
+	}
+
+	// Returns the first move from the source towards the target, found with a binary search of the source's runs
+	private int getFirstMove(int source, int target)
+	{
+		long low = getLong(offsetsOffset + (long)source * Long.BYTES);
+		long high = getLong(offsetsOffset + (source + 1L) * Long.BYTES) - 1;
+		if (high < low) return NO_MOVE;
+
+		// Find the last run that starts at or before the target, the first run always starts at 0
+		while (low < high) {
+			long middle = (low + high + 1) >>> 1;
+			if (getInt(runsOffset + middle * Integer.BYTES) >>> MOVE_BITS <= target) low = middle;
+			else high = middle - 1;
+		}
+		return getInt(runsOffset + low * Integer.BYTES) & ((1 << MOVE_BITS) - 1);
+	}
+
+	// Returns the depth first position of the tile, -1 if it is a wall or out of bounds
+	private int getPosition(int x, int y)
+	{
+		if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+		return getInt(positionsOffset + ((long)y * width + x) * Integer.BYTES);
+	}
+
+	// Reads an int at the offset from the start of the file, values never cross chunks since chunks are aligned
+	private int getInt(long offset)
+	{
+		return chunks[(int)(offset >>> CHUNK_BITS)].getInt((int)(offset & ((1L << CHUNK_BITS) - 1)));
+	}
+
+	// Reads a long at the offset from the start of the file
+	private long getLong(long offset)
+	{
+		return chunks[(int)(offset >>> CHUNK_BITS)].getLong((int)(offset & ((1L << CHUNK_BITS) - 1)));
+	}
+
+	// Returns where the run offsets start, after the tile positions rounded up to a multiple of 8 bytes
+	private static long getOffsetsOffset(int width, int height)
+	{
+		long end = HEADER_BYTES + (long)width * height * Integer.BYTES;
+		return (end + Long.BYTES - 1) & -Long.BYTES;
+	}
+
+	/*
+	 * Numbers the open tiles in depth first order, one connected part of the maze after another.
+	 *
+	 * @param maze the maze to number
+	 * @param positions filled with the number of each tile, -1 for walls
+	 * @return the tile index at each number
+	 */
+	private static int[] numberTiles(Grid maze, int[] positions)
+	{
+		int width = maze.getWidth();
+		Arrays.fill(positions, -1);
+		int[] order = new int[positions.length];
+		int count = 0;
+		int[] stack = new int[positions.length];
+		for (int root = 0; root < positions.length; root++) {
+			if (positions[root] != -1 || !maze.isPassable(root % width, root / width)) continue;
+
+			int size = 0;
+			stack[size++] = root;
+			positions[root] = count;
+			order[count++] = root;
+			while (size > 0) {
+				// Visit the first unnumbered neighbor of the top tile, or step back if there are none
+				int tile = stack[size - 1];
+				int x = tile % width, y = tile / width;
+				int next = -1;
+				for (int direction = 0; direction < 4 && next == -1; direction++) {
+					int nextX = x + DIRECTION_X[direction], nextY = y + DIRECTION_Y[direction];
+					if (maze.isPassable(nextX, nextY) && positions[nextY * width + nextX] == -1) next = nextY * width + nextX;
+				}
+				if (next == -1) {
+					size--;
+					continue;
+				}
+				positions[next] = count;
+				order[count++] = next;
+				stack[size++] = next;
+			}
+		}
+		return Arrays.copyOf(order, count);
+	}
+
+	// Writes count ints at the position of the file
+	private static void writeInts(FileChannel channel, ByteBuffer buffer, long position, int[] values, int count)
+		throws IOException
+	{
+		int i = 0;
+		while (i < count) {
+			buffer.clear();
+			while (i < count && buffer.remaining() >= Integer.BYTES) {
+				buffer.putInt(values[i++]);
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+		}
+	}
+
+	// Writes every long at the position of the file
+	private static void writeLongs(FileChannel channel, ByteBuffer buffer, long position, long[] values)
+		throws IOException
+	{
+		int i = 0;
+		while (i < values.length) {
+			buffer.clear();
+			while (i < values.length && buffer.remaining() >= Long.BYTES) {
+				buffer.putLong(values[i++]);
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+		}
+	}
+
+	/*
+	 * Finds the first moves from one source to every tile and run length encodes them.
+	 * Each worker thread has its own so the search arrays are reused between its sources.
+	 */
+	private static class SourceCompressor
+	{
+		private Grid maze;
+		private int width;
+		private int[] order;
+		// First move towards each tile, valid for tiles whose stamp is the current source's stamp
+		private byte[] moves;
+		private int[] stamps;
+		private int stamp;
+		private int[] queue;
+		private int[] runs;
+
+		SourceCompressor(Grid maze, int[] order)
+		{
+			this.maze = maze;
+			this.width = maze.getWidth();
+			this.order = order;
+			this.moves = new byte[maze.getWidth() * maze.getHeight()];
+			this.stamps = new int[moves.length];
+			this.queue = new int[order.length];
+			this.runs = new int[64];
+		}
+
+		// Returns the runs of the source at the specified position
+		int[] compress(int source)
+		{
+			// Breadth first search where every tile inherits the first move of the tile it was reached from
+			stamp++;
+			int sourceTile = order[source];
+			stamps[sourceTile] = stamp;
+			int head = 0, tail = 0;
+			queue[tail++] = sourceTile;
+			while (head < tail) {
+				int tile = queue[head++];
+				int x = tile % width, y = tile / width;
+				for (int direction = 0; direction < 4; direction++) {
+					int nextX = x + DIRECTION_X[direction], nextY = y + DIRECTION_Y[direction];
+					if (!maze.isPassable(nextX, nextY)) continue;
+					int next = nextY * width + nextX;
+					if (stamps[next] == stamp) continue;
+					stamps[next] = stamp;
+					moves[next] = tile == sourceTile ? (byte)direction : moves[tile];
+					queue[tail++] = next;
+				}
+			}
+
+			// The source itself is never looked up, so it joins whichever run it is in
+			int count = 0;
+			int current = -1;
+			for (int target = 0; target < order.length; target++) {
+				if (target == source) continue;
+				int tile = order[target];
+				int move = stamps[tile] == stamp ? moves[tile] : NO_MOVE;
+				if (move == current) continue;
+
+				if (count == runs.length) runs = Arrays.copyOf(runs, count * 2);
+				int runStart = count == 0 ? 0 : target;
+				runs[count++] = runStart << MOVE_BITS | move;
+				current = move;
+			}
+			return Arrays.copyOf(runs, count);
+		}
+	}
+}
@@ -0,0 +1,278 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.awt.Point;
+import java.awt.Rectangle;
+
+/**
+ * Labels every passable tile of a Maze with the group of tiles it can reach (its connected component).
+ * <p> Two tiles have a path between them only if they have the same label, so this answers whether a path exists
+ * without searching, and splits a maze into parts that can't affect each other.
+ * <p> Labels can be repaired in place after a MazePatch changes some tiles. Repaired labels are still unique to each
+ * component, but aren't numbered from 0 up to the component count any more.
+ */
+public class ConnectedComponents
+{
+	// x and y offsets of the east, south, west and north neighbors
+	private static final int[] DIRECTION_X = {1, 0, -1, 0};
+	private static final int[] DIRECTION_Y = {0, 1, 0, -1};
+	// Tiles the first search for each part of a split component may visit, doubled until the parts are found
+	private static final int INITIAL_SPLIT_SEARCH = 64;
+
+	private int width, height;
+	// Component of each tile, indexed by y * width + x. -1 for walls.
+	private int[] labels;
+	private int componentCount;
+	// Number of tiles with each label, and the label the next new component gets
+	private int[] componentSizes;
+	private int nextLabel;
+	// Queue of the flood fills done by update, grown as needed
+	private int[] updateQueue = new int[16];
+
+	/**
+	 * Labels the components of the specified maze.
+	 * @param maze the maze to label
+	 * @throws IllegalArgumentException if maze is null
+	 */
+	public ConnectedComponents(Grid maze)
+	{
+		if (maze == null) throw new IllegalArgumentException("null parameter");
+
+		this.width = maze.getWidth();
+		this.height = maze.getHeight();
+		this.labels = new int[width * height];
+		Arrays.fill(labels, -1);
+
+		// Flood fill from each passable tile that doesn't have a label yet
+		int[] queue = new int[width * height];
+		componentSizes = new int[16];
+		for (int start = 0; start < labels.length; start++) {
+			if (labels[start] != -1 || !maze.isPassable(start % width, start / width)) continue;
+
+			int head = 0, tail = 0;
+			labels[start] = componentCount;
+			queue[tail++] = start;
+			while (head < tail) {
+				int tile = queue[head++];
+				int x = tile % width, y = tile / width;
+				for (int direction = 0; direction < 4; direction++) {
+					int nextX = x + DIRECTION_X[direction], nextY = y + DIRECTION_Y[direction];
+					if (!maze.isPassable(nextX, nextY)) continue;
+					int next = nextY * width + nextX;
+					if (labels[next] == -1) {
+						labels[next] = componentCount;
+						queue[tail++] = next;
+					}
+				}
+			}
+			if (componentCount == componentSizes.length) componentSizes = Arrays.copyOf(componentSizes, componentCount * 2);
+			componentSizes[componentCount] = tail;
+			componentCount++;
+		}
+		nextLabel = componentCount;
+	}
+
+	/**
+	 * Repairs the labels after tiles of the maze changed, for example from Maze.ChangeListener once a MazePatch
+	 * is applied.
+	 * <p> Only the components around the changed tiles are visited. An opened tile joins the components next to it
+	 * by relabeling all but the largest one. A closed tile that splits its component gives new labels to the parts
+	 * that were cut off, found with searches from each side that start small and double until only one part is
+	 * left, so the work depends on the size of the smaller parts and not of the whole maze.
+	 * @param maze the maze the labels were made from, already holding its new tiles
+	 * @param regions the rectangles of tiles that may have changed
+	 * @throws IllegalArgumentException if a parameter is null or the maze's size changed
+	 */
+	public void update(Grid maze, List<Rectangle> regions)
+	{
+		if (maze == null || regions == null) throw new IllegalArgumentException("null parameter");
+		if (maze.getWidth() != width || maze.getHeight() != height) throw new IllegalArgumentException("maze size changed");
+
+		// Tiles are updated one at a time, with labels[tile] != -1 marking the tiles that are open so far
+		for (Rectangle region : regions) {
+			int left = Math.max(region.x, 0), top = Math.max(region.y, 0);
+			int right = Math.min(region.x + region.width, width), bottom = Math.min(region.y + region.height, height);
+			for (int y = top; y < bottom; y++) {
+				for (int x = left; x < right; x++) {
+					int tile = y * width + x;
+					boolean passable = maze.isPassable(x, y);
+					if (passable && labels[tile] == -1) openTile(tile);
+					else if (!passable && labels[tile] != -1) closeTile(tile);
+				}
+			}
+		}
+	}
+
+	// Labels a newly opened tile, joining the components around it into the largest of them
+	private void openTile(int tile)
+	{
+		int[] neighbors = getNeighbors(tile);
+		int keep = -1;
+		for (int neighbor : neighbors) {
+			if (neighbor != -1 && (keep == -1 || componentSizes[labels[neighbor]] > componentSizes[keep])) keep = labels[neighbor];
+		}
+		if (keep == -1) {
+			labels[tile] = newLabel(1);
+			componentCount++;
+			return;
+		}
+
+		labels[tile] = keep;
+		componentSizes[keep]++;
+		for (int neighbor : neighbors) {
+			if (neighbor == -1 || labels[neighbor] == keep) continue;
+			int merged = labels[neighbor];
+			componentSizes[keep] += componentSizes[merged];
+			componentSizes[merged] = 0;
+			componentCount--;
+			relabel(neighbor, merged, keep);
+		}
+	}
+
+	// Removes a newly closed tile, giving new labels to any parts of its component that it cut off
+	private void closeTile(int tile)
+	{
+		int component = labels[tile];
+		labels[tile] = -1;
+		if (--componentSizes[component] == 0) {
+			componentCount--;
+			return;
+		}
+
+		// Each neighbor that is still in the component is on one of the parts, which may all still be joined
+		List<Integer> pending = new ArrayList<>();
+		for (int neighbor : getNeighbors(tile)) {
+			if (neighbor != -1) pending.add(neighbor);
+		}
+
+		// One visited set for every search, cleared between them. It only grows as the limit doubles, so clearing it
+		// costs no more than the search that filled it.
+		int limit = INITIAL_SPLIT_SEARCH;
+		LongIntMap visited = new LongIntMap(limit);
+		while (pending.size() > 1) {
+			boolean found = false;
+			for (int i = 0; i < pending.size() && pending.size() > 1; ) {
+				visited.clear();
+				int partSize = searchPart(pending.get(i), component, pending, visited, limit);
+				if (partSize == -1) {
+					i++;
+					continue;
+				}
+
+				// The search either reached another neighbor, so they share a part, or covered a whole part
+				// without finding one, so that part is cut off and gets its own label
+				if (partSize > 0) {
+					int label = newLabel(partSize);
+					componentSizes[component] -= partSize;
+					componentCount++;
+					for (int j = 0; j < partSize; j++) {
+						labels[updateQueue[j]] = label;
+					}
+				}
+				pending.remove(i);
+				found = true;
+			}
+			if (!found) limit *= 2;
+		}
+	}
+
+	/*
+	 * Breadth first search through the tiles of a component, leaving the tiles it visits at the front of updateQueue.
+	 *
+	 * @param visited an empty set to mark the visited tiles in
+	 * @return 0 if another pending tile was reached, the number of tiles visited if the whole part was covered,
+	 * -1 if the limit was reached first
+	 */
+	private int searchPart(int from, int component, List<Integer> pending, LongIntMap visited, int limit)
+	{
+		int head = 0, tail = 0;
+		visited.put(from, 0);
+		updateQueue[tail++] = from;
+		while (head < tail) {
+			int tile = updateQueue[head++];
+			for (int neighbor : getNeighbors(tile)) {
+				if (neighbor == -1 || labels[neighbor] != component || visited.containsKey(neighbor)) continue;
+				if (pending.contains(neighbor)) return 0;
+				if (tail == limit) return -1;
+				visited.put(neighbor, 0);
+				if (tail == updateQueue.length) updateQueue = Arrays.copyOf(updateQueue, tail * 2);
+				updateQueue[tail++] = neighbor;
+			}
+		}
+		return tail;
+	}
+
+	// Flood fills a component from one of its tiles, changing its label
+	private void relabel(int from, int oldLabel, int newLabel)
+	{
+		int head = 0, tail = 0;
+		labels[from] = newLabel;
+		updateQueue[tail++] = from;
+		while (head < tail) {
+			int tile = updateQueue[head++];
+			for (int neighbor : getNeighbors(tile)) {
+				if (neighbor == -1 || labels[neighbor] != oldLabel) continue;
+				labels[neighbor] = newLabel;
+				if (tail == updateQueue.length) updateQueue = Arrays.copyOf(updateQueue, tail * 2);
+				updateQueue[tail++] = neighbor;
+			}
+		}
+	}
+
+	// Returns the labeled tiles next to a tile, -1 for walls and tiles out of bounds
+	private int[] getNeighbors(int tile)
+	{
+		int[] neighbors = new int[4];
+		int x = tile % width, y = tile / width;
+		for (int direction = 0; direction < 4; direction++) {
+			int nextX = x + DIRECTION_X[direction], nextY = y + DIRECTION_Y[direction];
+			int next = nextY * width + nextX;
+			boolean inside = nextX >= 0 && nextY >= 0 && nextX < width && nextY < height;
+			neighbors[direction] = inside && labels[next] != -1 ? next : -1;
+		}
+		return neighbors;
+	}
+
+	// Returns an unused label for a component with the specified number of tiles
+	private int newLabel(int size)
+	{
+		if (nextLabel == componentSizes.length) componentSizes = Arrays.copyOf(componentSizes, nextLabel * 2);
+		componentSizes[nextLabel] = size;
+		return nextLabel++;
+	}
+
+	/**
+	 * Returns the component of the tile at the specified position
+	 * @param x the x coordinate of the tile
+	 * @param y the y coordinate of the tile
+	 * @return the component label, -1 if the tile is a wall or out of bounds
+	 */
+	public int getComponent(int x, int y)
+	{
+		if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+		return labels[y * width + x];
+	}
+
+	/**
+	 * Returns the number of components in the maze
+	 * @return component count
+	 */
+	public int getComponentCount()
+	{
+		return componentCount;
+	}
+
+	/**
+	 * Returns whether there is a path between the two tiles
+	 * @param a the first tile
+	 * @param b the second tile
+	 * @return true if both tiles are passable and in the same component
+	 * @throws IllegalArgumentException if a parameter is null
+	 */
+	public boolean isConnected(Point a, Point b)
+	{
+		if (a == null || b == null) throw new IllegalArgumentException("null parameter");
+		int component = getComponent(a.x, a.y);
+		return component != -1 && component == getComponent(b.x, b.y);
+	}
+}
@@ -0,0 +1,331 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.HashSet;
+import java.awt.Point;
+import java.awt.Rectangle;
+
+/**
+ * Plans collision free paths for many agents moving through the same Maze at once (cooperative A*).
+ * <p> Agents are planned one at a time in priority order. Each agent searches over (tile, time) pairs and can wait
+ * in place, avoiding every tile and move reserved by the agents planned before it, then reserves its own path.
+ * Once an agent reaches its goal it stays there.
+ * <p> The distance from every tile to each goal is computed once and reused as the heuristic, so the search only
+ * strays from the shortest path where other agents are in the way. The distances to the most recently used goals
+ * are kept between calls so planning the next tick with the same goals doesn't recompute them, and the least
+ * recently used ones are forgotten once there are more than the distance field limit.
+ * <p> Agents in different connected parts of the maze can never meet, so those groups can be planned in parallel.
+ * <p> When the grid is a Maze the planner listens to its patches, repairing the connected parts and forgetting the
+ * distance fields a patch changed. Remove the planner from the maze with Maze.removeChangeListener once it isn't
+ * needed.
+ */
+public class CooperativePathfinding implements Maze.ChangeListener
+{
+	// x and y offsets of the east, south, west and north neighbors followed by waiting in place
+	private static final int[] MOVE_X = {1, 0, -1, 0, 0};
+	private static final int[] MOVE_Y = {0, 1, 0, -1, 0};
+
+	private Grid maze;
+	private int width;
+	private ConnectedComponents components;
+	// Distances to the most recently planned goal tiles, least recently used first
+	private LinkedHashMap<Integer, DistanceField> distanceFields;
+	private int distanceFieldLimit;
+	private int maxDelay;
+	private boolean parallel;
+
+	/**
+	 * Constructor that prepares the planner for the specified maze, listening to its changes if it is a Maze.
+	 * @param maze the maze the agents move through
+	 * @throws IllegalArgumentException if maze is null
+	 */
+	public CooperativePathfinding(Grid maze)
+	{
+		if (maze == null) throw new IllegalArgumentException("null parameter");
+
+		this.maze = maze;
+		this.width = maze.getWidth();
+		this.components = new ConnectedComponents(maze);
+		this.distanceFields = new LinkedHashMap<>(16, 0.75f, true);
+		this.distanceFieldLimit = 16;
+		this.maxDelay = 32;
+		this.parallel = false;
+		if (maze instanceof Maze) ((Maze)maze).addChangeListener(this);
+	}
+
+	/**
+	 * Sets the most extra steps an agent may take compared to its shortest path to avoid other agents.
+	 * <p> Agents that would need more are given no path. Larger values find more paths but take longer to fail.
+	 * @param maxDelay the number of extra steps, 32 by default
+	 * @throws IllegalArgumentException if maxDelay is negative
+	 */
+	public void setMaxDelay(int maxDelay)
+	{
+		if (maxDelay < 0) throw new IllegalArgumentException("maxDelay must not be negative");
+		this.maxDelay = maxDelay;
+	}
+
+	/**
+	 * Sets the most goals whose distance fields are kept between calls.
+	 * <p> Each distance field holds a distance for every tile of the maze. A goal whose field was forgotten
+	 * has it computed again the next time an agent plans to it.
+	 * @param distanceFieldLimit the number of distance fields to keep, 16 by default
+	 * @throws IllegalArgumentException if distanceFieldLimit is less than 1
+	 */
+	public void setDistanceFieldLimit(int distanceFieldLimit)
+	{
+		if (distanceFieldLimit < 1) throw new IllegalArgumentException("distanceFieldLimit must be at least 1");
+		synchronized (distanceFields) {
+			this.distanceFieldLimit = distanceFieldLimit;
+			evictDistanceFields();
+		}
+	}
+
+	/**
+	 * Sets whether groups of agents that can't meet are planned on multiple threads.
+	 * @param parallel true to plan independent groups in parallel, false by default
+	 */
+	public void setParallel(boolean parallel)
+	{
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Plans a path for each agent from its start to its goal without any two agents colliding.
+	 * <p> Agents earlier in the lists have priority. Each path has one position per time step starting at time 0,
+	 * so a position is repeated while the agent waits. Two agents are never on the same tile at the same time
+	 * and never swap tiles with each other in one step.
+	 *
+	 * @param starts the starting tile of each agent
+	 * @param goals the goal tile of each agent
+	 * @return the path of each agent in the same order. An agent's path is null if its goal can't be reached
+	 * within the maximum delay, in which case it is treated as staying on its start.
+	 * @throws IllegalArgumentException if a parameter is null, the lists have different sizes, a tile isn't passable
+	 * or two agents share a start
+	 */
+	public List<Path> findPaths(List<Point> starts, List<Point> goals)
+	{
+		if (starts == null || goals == null) throw new IllegalArgumentException("null parameter");
+		if (starts.size() != goals.size()) throw new IllegalArgumentException("Every agent must have a start and a goal");
+
+		// Agents are grouped by the component of their start, keeping their priority order in each group.
+		// Labels aren't numbered from 0 once the components have been updated, so groups are kept by label.
+		int agentCount = starts.size();
+		Set<Point> usedStarts = new HashSet<>();
+		Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+		for (int agent = 0; agent < agentCount; agent++) {
+			Point start = starts.get(agent);
+			Point goal = goals.get(agent);
+			if (start == null || goal == null) throw new IllegalArgumentException("null parameter");
+			if (!maze.isPassable(start.x, start.y) || !maze.isPassable(goal.x, goal.y)) {
+				throw new IllegalArgumentException("Agent " + agent + " must start and end on passable tiles");
+			}
+			if (!usedStarts.add(start)) throw new IllegalArgumentException("Agents can't share a start");
+			groups.computeIfAbsent(components.getComponent(start.x, start.y), label -> new ArrayList<>()).add(agent);
+		}
+
+		Path[] paths = new Path[agentCount];
+		if (parallel) {
+			groups.values().parallelStream().forEach(group -> planGroup(group, starts, goals, paths));
+		} else {
+			for (List<Integer> group : groups.values()) {
+				planGroup(group, starts, goals, paths);
+			}
+		}
+		return Arrays.asList(paths);
+	}
+
+	@Override
+	public void onChange(Maze maze, List<Rectangle> regions)
+	{
+		components.update(maze, regions);
+		synchronized (distanceFields) {
+			for (Iterator<DistanceField> fields = distanceFields.values().iterator(); fields.hasNext(); ) {
+				if (fields.next().isChangedBy(maze, regions)) fields.remove();
+			}
+		}
+	}
+
+	/*
+	 * Plans every agent of a group in order with a reservation table only shared inside the group.
+	 * <p> An agent without a path stays on its start, but agents planned before it may already have planned to move
+	 * through that tile. When that happens the group is planned again with the agent staying still from the
+	 * beginning so every other agent plans around it. Each retry fixes at least one more agent in place.
+	 *
+	 * @param group the agents of the group in priority order
+	 * @param starts the starting tile of each agent
+	 * @param goals the goal tile of each agent
+	 * @param paths the array to store each agent's path in
+	 */
+	private void planGroup(List<Integer> group, List<Point> starts, List<Point> goals, Path[] paths)
+	{
+		Set<Integer> stationary = new HashSet<>();
+		ReservationTable table = new ReservationTable();
+		boolean planned = false;
+		while (!planned) {
+			planned = true;
+			table.clear();
+
+			// Every agent is on its start at time 0, before any of them move
+			for (int agent : group) {
+				int start = toTile(starts.get(agent));
+				table.reserve(start, 0, agent);
+				if (stationary.contains(agent)) {
+					table.reserveFrom(start, 0, agent);
+					paths[agent] = null;
+				}
+			}
+
+			for (int agent : group) {
+				if (stationary.contains(agent)) continue;
+
+				Point start = starts.get(agent);
+				Point goal = goals.get(agent);
+				int[] tiles = null;
+				if (components.isConnected(start, goal)) {
+					DistanceField distances = getDistanceField(goal);
+					tiles = search(toTile(start), toTile(goal), distances, table, agent);
+				}
+
+				if (tiles == null) {
+					// The agent doesn't move so no one else may plan through it
+					stationary.add(agent);
+					paths[agent] = null;
+					if (!table.isFreeFrom(toTile(start), 1)) {
+						planned = false;
+						break;
+					}
+					table.reserveFrom(toTile(start), 0, agent);
+					continue;
+				}
+
+				Path path = new Path();
+				for (int time = 0; time < tiles.length; time++) {
+					table.reserve(tiles[time], time, agent);
+					path.push(tiles[time] % width, tiles[time] / width);
+				}
+				table.reserveFrom(tiles[tiles.length - 1], tiles.length - 1, agent);
+				paths[agent] = path;
+			}
+		}
+	}
+
+	/*
+	 * Returns the distances to the goal, computing them if they aren't remembered.
+	 * <p> The field is computed outside the lock so groups planned in parallel don't wait for each other's goals.
+	 * Two groups may both compute a new goal's field, in which case the last one is kept.
+	 *
+	 * @param goal the goal tile
+	 * @return the distance of every tile to the goal
+	 */
+	private DistanceField getDistanceField(Point goal)
+	{
+		int tile = toTile(goal);
+		synchronized (distanceFields) {
+			DistanceField distances = distanceFields.get(tile);
+			if (distances != null) return distances;
+		}
+
+		DistanceField distances = new DistanceField(maze, goal);
+		synchronized (distanceFields) {
+			distanceFields.put(tile, distances);
+			evictDistanceFields();
+		}
+		return distances;
+	}
+
+	// Forgets the least recently used distance fields until there are no more than the limit, holding the lock
+	private void evictDistanceFields()
+	{
+		Iterator<DistanceField> eldest = distanceFields.values().iterator();
+		while (distanceFields.size() > distanceFieldLimit) {
+			eldest.next();
+			eldest.remove();
+		}
+	}
+
+	/*
+	 * A* search over (tile, time) pairs from the start at time 0 to the goal at a time it can stay there forever.
+	 *
+	 * @param start the start tile
+	 * @param goal the goal tile
+	 * @param distances the true distance of every tile to the goal, used as the heuristic
+	 * @param table the reservations of higher priority agents
+	 * @param agent the id of the agent being planned
+	 * @return the tile of the agent at each time step, null if no path was found
+	 */
+	private int[] search(int start, int goal, DistanceField distances, ReservationTable table, int agent)
+	{
+		int limit = distance(distances, start) + maxDelay;
+
+		// Each searched (tile, time) pair is stored as a node in these arrays, the queue holds node indexes
+		int[] nodeTiles = new int[64];
+		int[] nodeTimes = new int[64];
+		int[] nodeParents = new int[64];
+		int nodeCount = 0;
+		LongIntMap visited = new LongIntMap();
+		// Entries hold the F value in the high bits and the node in the low bits
+		LongHeap openNodes = new LongHeap();
+
+		nodeTiles[0] = start;
+		nodeParents[0] = -1;
+		nodeCount = 1;
+		visited.put(start, 0);
+		openNodes.add((long)distance(distances, start) << 32);
+		while (!openNodes.isEmpty()) {
+			int node = (int)openNodes.poll();
+			int tile = nodeTiles[node];
+			int time = nodeTimes[node];
+
+			if (tile == goal && table.isFreeFrom(goal, time)) {
+				int[] tiles = new int[time + 1];
+				for (int current = node; current != -1; current = nodeParents[current]) {
+					tiles[nodeTimes[current]] = nodeTiles[current];
+				}
+				return tiles;
+			}
+
+			int x = tile % width, y = tile / width;
+			for (int move = 0; move < MOVE_X.length; move++) {
+				int nextX = x + MOVE_X[move], nextY = y + MOVE_Y[move];
+				if (!maze.isPassable(nextX, nextY)) continue;
+
+				int next = nextY * width + nextX;
+				int f = time + 1 + distance(distances, next);
+				// Pairs are only added once, the time is part of the pair so the first g value found is the only one
+				long key = ((long)(time + 1) << 32) | next;
+				if (f > limit || visited.containsKey(key) || !table.canMove(tile, next, time)) continue;
+				visited.put(key, 0);
+
+				if (nodeCount == nodeTiles.length) {
+					nodeTiles = Arrays.copyOf(nodeTiles, nodeCount * 2);
+					nodeTimes = Arrays.copyOf(nodeTimes, nodeCount * 2);
+					nodeParents = Arrays.copyOf(nodeParents, nodeCount * 2);
+				}
+				nodeTiles[nodeCount] = next;
+				nodeTimes[nodeCount] = time + 1;
+				nodeParents[nodeCount] = node;
+				openNodes.add(((long)f << 32) | nodeCount);
+				nodeCount++;
+			}
+		}
+
+		return null;
+	}
+
+	// Returns the distance from the tile to the distance field's target
+	private int distance(DistanceField distances, int tile)
+	{
+		return distances.getDistance(tile % width, tile / width);
+	}
+
+	// Converts a point to its tile index
+	private int toTile(Point point)
+	{
+		return point.y * width + point.x;
+	}
+}
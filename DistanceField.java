@@ -0,0 +1,113 @@
+import java.util.Arrays;
+import java.util.List;
+import java.awt.Point;
+import java.awt.Rectangle;
+
+/**
+ * The true walking distance from every tile of a Maze to one target tile.
+ * <p> Computed once with a breadth first search from the target. Since every move goes both ways, the distance
+ * from a tile to the target is the same as the distance from the target to the tile.
+ * <p> Used as a perfect heuristic when the same target is searched for many times, for example by many agents
+ * heading to the same goal.
+ */
+public class DistanceField
+{
+	// x and y offsets of the east, south, west and north neighbors
+	private static final int[] DIRECTION_X = {1, 0, -1, 0};
+	private static final int[] DIRECTION_Y = {0, 1, 0, -1};
+
+	private int width, height;
+	private Point target;
+	// Distance of each tile to the target, indexed by y * width + x. -1 if the target can't be reached.
+	private int[] distances;
+
+	/**
+	 * Computes the distance from every tile of the maze to the target.
+	 * @param maze the maze to measure distances in
+	 * @param target the tile distances are measured to
+	 * @throws IllegalArgumentException if a parameter is null or the target isn't passable
+	 */
+	public DistanceField(Grid maze, Point target)
+	{
+		if (maze == null || target == null) throw new IllegalArgumentException("null parameter");
+		if (!maze.isPassable(target.x, target.y)) throw new IllegalArgumentException("target must be passable");
+
+		this.width = maze.getWidth();
+		this.height = maze.getHeight();
+		this.target = new Point(target);
+		this.distances = new int[width * height];
+		Arrays.fill(distances, -1);
+
+		// Breadth first search from the target, the queue is an array since each tile is added at most once
+		int[] queue = new int[width * height];
+		int head = 0, tail = 0;
+		int targetTile = target.y * width + target.x;
+		distances[targetTile] = 0;
+		queue[tail++] = targetTile;
+		while (head < tail) {
+			int tile = queue[head++];
+			int x = tile % width, y = tile / width;
+			for (int direction = 0; direction < 4; direction++) {
+				int nextX = x + DIRECTION_X[direction], nextY = y + DIRECTION_Y[direction];
+				if (!maze.isPassable(nextX, nextY)) continue;
+				int next = nextY * width + nextX;
+				if (distances[next] == -1) {
+					distances[next] = distances[tile] + 1;
+					queue[tail++] = next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of moves needed to walk from the tile to the target
+	 * @param x the x coordinate of the tile
+	 * @param y the y coordinate of the tile
+	 * @return the distance, -1 if the target can't be reached from the tile or the tile is out of bounds
+	 */
+	public int getDistance(int x, int y)
+	{
+		if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+		return distances[y * width + x];
+	}
+
+	/**
+	 * Returns whether changed tiles could have changed any distance, so a field is only computed again when it is
+	 * really out of date, for example from Maze.ChangeListener once a MazePatch is applied.
+	 * <p> Distances stay the same when every tile that became a wall was already unreachable and no tile that
+	 * opened is next to a reachable tile, so only the changed tiles and their neighbors are checked.
+	 * @param maze the maze the field was made from, already holding its new tiles
+	 * @param regions the rectangles of tiles that may have changed
+	 * @return true if the field should be computed again
+	 * @throws IllegalArgumentException if a parameter is null
+	 */
+	public boolean isChangedBy(Grid maze, List<Rectangle> regions)
+	{
+		if (maze == null || regions == null) throw new IllegalArgumentException("null parameter");
+
+		for (Rectangle region : regions) {
+			int left = Math.max(region.x, 0), top = Math.max(region.y, 0);
+			int right = Math.min(region.x + region.width, width), bottom = Math.min(region.y + region.height, height);
+			for (int y = top; y < bottom; y++) {
+				for (int x = left; x < right; x++) {
+					boolean reachable = distances[y * width + x] != -1;
+					if (maze.isPassable(x, y) == reachable) continue;
+					if (reachable) return true;
+					for (int direction = 0; direction < 4; direction++) {
+						if (getDistance(x + DIRECTION_X[direction], y + DIRECTION_Y[direction]) != -1) return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the tile distances are measured to
+	 * @return target tile
+	 */
+	public Point getTarget()
+	{
+		return new Point(target);
+	}
+}
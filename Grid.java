@@ -0,0 +1,69 @@
+import java.util.List;
+import java.awt.Point;
+
+/**
+ * Read access to a rectangular grid of tiles that pathfinding engines search.
+ * <p> Maze reads a text file into an array of tile types, but the engines only need to know the size, which tiles
+ * can be walked on, and where the start and end are. Other implementations store the same information differently:
+ * <p> ByteGrid - one byte per tile
+ * <p> BitsetGrid - one bit per tile
+ * <p> MappedGrid - one bit per tile in a memory-mapped file, nothing is loaded onto the heap
+ * <p> ProceduralGrid - nothing is stored, each tile is computed when asked for
+ *
+ * <p> isPassable is called for every neighbor of every explored tile. Implementations should keep it small and
+ * are final so the JIT can inline it into the engine's search loop when a process only uses one of them.
+ */
+public interface Grid
+{
+	/**
+	 * Returns the width of this grid
+	 * @return grid width
+	 */
+	int getWidth();
+
+	/**
+	 * Returns the height of this grid
+	 * @return grid height
+	 */
+	int getHeight();
+
+	/**
+	 * Returns whether a path can move through the tile at the specified x and y position
+	 * @param x the x-coordinate of the tile
+	 * @param y the y-coordinate of the tile
+	 * @return false if the tile is a wall or out of bounds, true otherwise
+	 */
+	boolean isPassable(int x, int y);
+
+	/**
+	 * Returns the start position of the grid
+	 * @return start tile
+	 */
+	Point getStart();
+
+	/**
+	 * Returns the end position of the grid
+	 * @return end tile
+	 */
+	Point getEnd();
+
+	/**
+	 * Returns every start position of the grid, for grids with more than one.
+	 * <p> getStart is the first of them. Grids with a single start don't need to override this.
+	 * @return start tiles
+	 */
+	default List<Point> getStarts()
+	{
+		return List.of(getStart());
+	}
+
+	/**
+	 * Returns every end position of the grid, for grids with more than one.
+	 * <p> getEnd is the first of them. Grids with a single end don't need to override this.
+	 * @return end tiles
+	 */
+	default List<Point> getEnds()
+	{
+		return List.of(getEnd());
+	}
+}
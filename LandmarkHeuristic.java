@@ -0,0 +1,86 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.awt.Point;
+
+/**
+ * A heuristic that uses the walking distances to a few landmark tiles, measured ahead of time, to estimate distances
+ * around walls (also known as ALT).
+ * <p> If a tile is a moves from a landmark and the end is b moves from it, the tile can't be closer to the end than
+ * |a - b| moves, or the landmark would have a shorter path to one of them through the other. The estimate is the
+ * largest of these over every landmark, which is never more than the real distance but is often much closer to it
+ * than Manhattan distance in mazes with long walls.
+ * <p> Landmarks are picked far apart, each one being the tile furthest from the ones picked before it.
+ * Each landmark uses an int for every tile of the maze.
+ */
+public class LandmarkHeuristic implements AstarPathfinding.Heuristic
+{
+	private List<DistanceField> landmarks;
+
+	/**
+	 * Picks the landmarks and measures the distance from each one to every tile of the maze.
+	 * @param maze the maze the heuristic will be used on
+	 * @param landmarkCount the most landmarks to pick, fewer are picked if the maze runs out of reachable tiles
+	 * @throws IllegalArgumentException if maze is null or landmarkCount is less than 1
+	 */
+	public LandmarkHeuristic(Grid maze, int landmarkCount)
+	{
+		if (maze == null) throw new IllegalArgumentException("null parameter");
+		if (landmarkCount < 1) throw new IllegalArgumentException("landmarkCount must be at least 1");
+
+		int width = maze.getWidth(), height = maze.getHeight();
+		landmarks = new ArrayList<>();
+
+		// Distance from every tile to the closest landmark picked so far, starting from the maze's start
+		// so the first landmark is the tile furthest from it
+		DistanceField fromStart = new DistanceField(maze, maze.getStart());
+		int[] closest = new int[width * height];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				closest[y * width + x] = fromStart.getDistance(x, y);
+			}
+		}
+
+		while (landmarks.size() < landmarkCount) {
+			int furthest = -1;
+			for (int tile = 0; tile < closest.length; tile++) {
+				if (closest[tile] > 0 && (furthest == -1 || closest[tile] > closest[furthest])) furthest = tile;
+			}
+			if (furthest == -1) break;
+
+			DistanceField landmark = new DistanceField(maze, new Point(furthest % width, furthest / width));
+			landmarks.add(landmark);
+			for (int tile = 0; tile < closest.length; tile++) {
+				if (closest[tile] > 0) {
+					closest[tile] = Math.min(closest[tile], landmark.getDistance(tile % width, tile / width));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the landmark tiles that were picked
+	 * @return the landmarks in the order they were picked
+	 */
+	public List<Point> getLandmarks()
+	{
+		List<Point> points = new ArrayList<>();
+		for (DistanceField landmark : landmarks) {
+			points.add(landmark.getTarget());
+		}
+		return points;
+	}
+
+	@Override
+	public int estimate(int x, int y, int endX, int endY)
+	{
+		int estimate = 0;
+		for (DistanceField landmark : landmarks) {
+			int tileDistance = landmark.getDistance(x, y);
+			int endDistance = landmark.getDistance(endX, endY);
+			// Landmarks that can't reach both tiles say nothing about the distance between them
+			if (tileDistance == -1 || endDistance == -1) continue;
+			estimate = Math.max(estimate, Math.abs(tileDistance - endDistance));
+		}
+		return estimate;
+	}
+}
@@ -0,0 +1,104 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min-heap of longs that stores everything in one primitive array.
+ * <p> Used by the Dijkstra searches instead of a PriorityQueue&lt;Long&gt; so adding an entry doesn't box it.
+ * The searches pack a distance in the high bits and a node in the low bits of each entry, so the smallest entry
+ * is always the closest node.
+ * <p> The array doubles in size when it is full and is kept by clear() so a heap can be reused between searches.
+ */
+public class LongHeap
+{
+	private long[] entries;
+	private int size;
+
+	/**
+	 * Default constructor, creates an empty heap.
+	 */
+	public LongHeap()
+	{
+		this(16);
+	}
+
+	/**
+	 * Creates an empty heap with room for the specified number of entries before it grows.
+	 * @param expectedSize the number of entries expected
+	 */
+	public LongHeap(int expectedSize)
+	{
+		entries = new long[Math.max(expectedSize, 8)];
+	}
+
+	/**
+	 * Adds an entry to the heap
+	 * @param entry the entry to add
+	 */
+	public void add(long entry)
+	{
+		if (size == entries.length) {
+			entries = Arrays.copyOf(entries, entries.length * 2);
+		}
+
+		// Move larger parents down until the entry's slot is found
+		int index = size++;
+		while (index > 0) {
+			int parent = (index - 1) / 2;
+			if (entries[parent] <= entry) break;
+			entries[index] = entries[parent];
+			index = parent;
+		}
+		entries[index] = entry;
+	}
+
+	/**
+	 * Removes and returns the smallest entry in the heap
+	 * @return the smallest entry
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	public long poll()
+	{
+		if (size == 0) throw new NoSuchElementException("heap is empty");
+
+		long first = entries[0];
+		long last = entries[--size];
+		// Move smaller children up until the last entry's slot is found
+		int index = 0;
+		while (true) {
+			int child = index * 2 + 1;
+			if (child >= size) break;
+			if (child + 1 < size && entries[child + 1] < entries[child]) child++;
+			if (last <= entries[child]) break;
+			entries[index] = entries[child];
+			index = child;
+		}
+		entries[index] = last;
+		return first;
+	}
+
+	/**
+	 * Returns whether the heap has no entries
+	 * @return true if the heap is empty
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of entries in the heap
+	 * @return heap size
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Removes every entry from the heap without shrinking it.
+	 */
+	public void clear()
+	{
+		size = 0;
+	}
+}
@@ -0,0 +1,144 @@
+import java.util.Arrays;
+
+/**
+ * A hash map from long keys to int values that stores everything in two primitive arrays.
+ * <p> Used by the pathfinding classes instead of a Map&lt;Long, Integer&gt; so millions of entries don't each need
+ * their own objects.
+ * <p> Keys are found with linear probing and the arrays double in size once they are half full.
+ */
+public class LongIntMap
+{
+	// Marks an empty slot. Long.MIN_VALUE is never used as a key by any of the classes using this map.
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+
+	/**
+	 * Default constructor, creates an empty map.
+	 */
+	public LongIntMap()
+	{
+		this(16);
+	}
+
+	/**
+	 * Creates an empty map with room for the specified number of entries before it grows.
+	 * @param expectedSize the number of entries expected
+	 */
+	public LongIntMap(int expectedSize)
+	{
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) * 2;
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Returns the value of the specified key
+	 * @param key the key to look up
+	 * @param missing the value to return if the key isn't in the map
+	 * @return the key's value, or missing if the map doesn't contain the key
+	 */
+	public int get(long key, int missing)
+	{
+		int mask = keys.length - 1;
+		for (int slot = hash(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) return values[slot];
+		}
+		return missing;
+	}
+
+	/**
+	 * Returns whether the map contains the specified key
+	 * @param key the key to look up
+	 * @return true if the key is in the map
+	 */
+	public boolean containsKey(long key)
+	{
+		int mask = keys.length - 1;
+		for (int slot = hash(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the value of the specified key, replacing any previous value.
+	 * @param key the key to set
+	 * @param value the new value
+	 * @throws IllegalArgumentException if key is Long.MIN_VALUE
+	 */
+	public void put(long key, int value)
+	{
+		if (key == EMPTY) throw new IllegalArgumentException("Long.MIN_VALUE can't be used as a key");
+
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		if (size * 2 > keys.length) {
+			resize(keys.length * 2);
+		}
+	}
+
+	/**
+	 * Returns the number of entries in the map
+	 * @return map size
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes used by the map's arrays
+	 * @return memory usage in bytes
+	 */
+	public long getMemoryUsage()
+	{
+		return (long)keys.length * (Long.BYTES + Integer.BYTES);
+	}
+
+	/**
+	 * Removes every entry from the map without shrinking it.
+	 */
+	public void clear()
+	{
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	// Moves every entry into new arrays of the specified capacity
+	private void resize(int capacity)
+	{
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	// Spreads the key's bits so neighboring keys don't end up in neighboring slots
+	private static int hash(long key)
+	{
+		key *= 0x9E3779B97F4A7C15L;
+		return (int)(key ^ (key >>> 32));
+	}
+}
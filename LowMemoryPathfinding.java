@@ -0,0 +1,230 @@
+import java.util.Arrays;
+
+/**
+ * Finds shortest paths while keeping the memory used by the search under a fixed number of bytes.
+ * <p> AstarPathfinding stores a cost and a parent for every tile of the maze, which doesn't fit next to other
+ * services on a small heap when the maze is huge. This search is a breadth first search that only keeps the
+ * frontier: the layer of tiles it is expanding, the layer before it and the layer being built. Every move changes
+ * x + y by one, so the neighbors of a layer are only ever in the layer before or the layer after it. Checking the
+ * layer before is enough to never visit a tile twice, and memory grows with the width of the frontier instead of
+ * the size of the maze.
+ * <p> Without parents the path is rebuilt by dividing and conquering. Once the distance to the end is known, the
+ * search is run again carrying along the tile each branch passed through halfway (its relay). The relay of the end
+ * is a halfway point of a shortest path, so the path is the shortest path to the relay followed by the shortest
+ * path from the relay, each found the same way. These searches skip tiles whose distance plus the Manhattan distance
+ * to their target is longer than the known distance, so they only cover the tiles around the path.
+ * <p> Layers are kept sorted by tile index and looked up with binary searches. A search whose frontier needs more
+ * than the byte limit throws an IllegalStateException.
+ */
+public class LowMemoryPathfinding
+{
+	/**
+	 * The smallest byte limit accepted
+	 */
+	public static final long MIN_BYTE_LIMIT = 1024;
+
+	// x and y offsets of the east, south, west and north neighbors
+	private static final int[] DIRECTION_X = {1, 0, -1, 0};
+	private static final int[] DIRECTION_Y = {0, 1, 0, -1};
+	// Initial number of entries of each layer
+	private static final int INITIAL_LAYER_SIZE = 16;
+
+	private long byteLimit;
+	private long peakMemoryUsage;
+
+	// State of the current search
+	private Grid maze;
+	private int width;
+	private Path path;
+	// Layer entries hold a tile index in the high 32 bits and its relay in the low 32 bits, sorted by tile index
+	private long[] previous, current, next;
+	private int previousSize, currentSize, nextSize;
+
+	/**
+	 * Creates a pathfinder whose searches never use more than the specified number of bytes.
+	 * @param byteLimit the most memory a search may use for its frontier
+	 * @throws IllegalArgumentException if byteLimit is less than MIN_BYTE_LIMIT
+	 */
+	public LowMemoryPathfinding(long byteLimit)
+	{
+		if (byteLimit < MIN_BYTE_LIMIT) throw new IllegalArgumentException("byte limit must be at least " + MIN_BYTE_LIMIT);
+		this.byteLimit = byteLimit;
+	}
+
+	/**
+	 * Returns the most memory a search may use
+	 * @return byte limit
+	 */
+	public long getByteLimit()
+	{
+		return byteLimit;
+	}
+
+	/**
+	 * Returns the most memory used at once by the last search.
+	 * <p> The returned Path itself isn't counted.
+	 * @return peak memory usage in bytes, 0 if nothing has been searched
+	 */
+	public long getPeakMemoryUsage()
+	{
+		return peakMemoryUsage;
+	}
+
+	/**
+	 * Generates and returns a Path object giving the shortest path from the start to the end of the maze
+	 *
+	 * @param maze the Grid to be solved, such as a Maze
+	 * @return the closest path between the two points in the maze. Returns null if there is no possible path.
+	 * @throws IllegalArgumentException if maze is null
+	 * @throws IllegalStateException if the search frontier doesn't fit in the byte limit
+	 */
+	public Path findPath(Grid maze)
+	{
+		if (maze == null) throw new IllegalArgumentException("null parameter");
+
+		this.maze = maze;
+		this.width = maze.getWidth();
+		previous = new long[INITIAL_LAYER_SIZE];
+		current = new long[INITIAL_LAYER_SIZE];
+		next = new long[INITIAL_LAYER_SIZE];
+		peakMemoryUsage = getMemoryUsage();
+
+		try {
+			int start = maze.getStart().y * width + maze.getStart().x;
+			int end = maze.getEnd().y * width + maze.getEnd().x;
+			int distance = search(start, end, -1, -1);
+			if (distance == -1) return null;
+
+			path = new Path();
+			path.push(start % width, start / width);
+			rebuildPath(start, end, distance);
+			return path;
+		} finally {
+			// Release the working memory between searches
+			this.maze = null;
+			path = null;
+			previous = null;
+			current = null;
+			next = null;
+		}
+	}
+
+	/*
+	 * Pushes the tiles of a shortest path from one tile to another onto the path, not including the first tile.
+	 *
+	 * @param from the tile the path starts at
+	 * @param to the tile the path ends at
+	 * @param distance the number of moves between them
+	 */
+	private void rebuildPath(int from, int to, int distance)
+	{
+		if (distance == 0) return;
+		if (distance == 1) {
+			path.push(to % width, to / width);
+			return;
+		}
+
+		int half = distance / 2;
+		int relay = search(from, to, distance, half);
+		rebuildPath(from, relay, half);
+		rebuildPath(relay, to, distance - half);
+	}
+
+	/*
+	 * Breadth first search from one tile to another that only keeps three layers of tiles.
+	 *
+	 * @param from the tile to search from
+	 * @param to the tile to search for
+	 * @param distance the known distance between the tiles used to skip tiles that can't be on a shortest path,
+	 * -1 if it isn't known yet
+	 * @param relayLayer the layer whose tiles are carried along as relays, -1 for none
+	 * @return the relay of the target if relayLayer is set, otherwise the distance to it. -1 if it can't be reached.
+	 */
+	private int search(int from, int to, int distance, int relayLayer)
+	{
+		int toX = to % width, toY = to / width;
+		previousSize = 0;
+		currentSize = 1;
+		current[0] = pack(from, from);
+		for (int layer = 0; ; layer++) {
+			int found = find(current, currentSize, to);
+			if (found != -1) return relayLayer == -1 ? layer : (int)current[found];
+
+			nextSize = 0;
+			for (int i = 0; i < currentSize; i++) {
+				int tile = (int)(current[i] >>> 32);
+				int x = tile % width, y = tile / width;
+				for (int direction = 0; direction < 4; direction++) {
+					int nextX = x + DIRECTION_X[direction], nextY = y + DIRECTION_Y[direction];
+					if (!maze.isPassable(nextX, nextY)) continue;
+					if (distance != -1 && layer + 1 + Math.abs(toX - nextX) + Math.abs(toY - nextY) > distance) continue;
+					int nextTile = nextY * width + nextX;
+					if (find(previous, previousSize, nextTile) != -1) continue;
+
+					int relay = layer + 1 == relayLayer ? nextTile : (int)current[i];
+					if (nextSize == next.length) next = grow(next, nextSize + 1);
+					next[nextSize++] = pack(nextTile, relay);
+				}
+			}
+			if (nextSize == 0) return -1;
+
+			// Sort the new layer and keep one entry of each tile, any relay of a tile is on a shortest path
+			Arrays.sort(next, 0, nextSize);
+			int unique = 1;
+			for (int i = 1; i < nextSize; i++) {
+				if (next[i] >>> 32 != next[unique - 1] >>> 32) next[unique++] = next[i];
+			}
+			nextSize = unique;
+
+			long[] swap = previous;
+			previous = current;
+			previousSize = currentSize;
+			current = next;
+			currentSize = nextSize;
+			next = swap;
+		}
+	}
+
+	// Returns a larger copy of the layer, throwing if it doesn't fit in the byte limit
+	private long[] grow(long[] layer, int needed)
+	{
+		long others = getMemoryUsage() - (long)layer.length * Long.BYTES;
+		long available = (byteLimit - others) / Long.BYTES;
+		if (needed > available) {
+			throw new IllegalStateException("search frontier needs more than " + byteLimit + " bytes");
+		}
+
+		long[] grown = Arrays.copyOf(layer, (int)Math.min(Math.max(needed, layer.length * 2L), available));
+		if (layer == previous) previous = grown;
+		else if (layer == current) current = grown;
+		else next = grown;
+		peakMemoryUsage = Math.max(peakMemoryUsage, getMemoryUsage());
+		return grown;
+	}
+
+	// Returns the bytes used by the three layers
+	private long getMemoryUsage()
+	{
+		return ((long)previous.length + current.length + next.length) * Long.BYTES;
+	}
+
+	// Returns the position of the tile in the sorted layer, -1 if it isn't in the layer
+	private static int find(long[] layer, int size, int tile)
+	{
+		int low = 0, high = size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int middleTile = (int)(layer[middle] >>> 32);
+			if (middleTile < tile) low = middle + 1;
+			else if (middleTile > tile) high = middle - 1;
+			else return middle;
+		}
+		return -1;
+	}
+
+	// Packs a tile and its relay into one layer entry
+	private static long pack(int tile, int relay)
+	{
+		return ((long)tile << 32) | (relay & 0xFFFFFFFFL);
+	}
+}
@@ -0,0 +1,144 @@
+import java.util.Arrays;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.awt.Point;
+
+import java.lang.IllegalArgumentException;
+import java.io.IOException;
+
+/**
+ * A Grid read directly from a memory-mapped file in the binary format written by MazeGenerator.
+ * <p> Nothing is copied onto the heap. The operating system loads parts of the file as they are used and
+ * shares them between every process mapping the same file.
+ * <p> A single mapping can't be larger than 2GB, so large files are mapped as several chunks of whole rows.
+ */
+public final class MappedGrid implements Grid
+{
+	// Size of the header before the first row
+	private static final int HEADER_BYTES = 32;
+	// Largest number of bytes mapped in one chunk
+	private static final long CHUNK_BYTES = 1L << 30;
+
+	private final int width, height;
+	private final Point start, end;
+	private final int rowBytes;
+	private final int rowsPerChunk;
+	private final ByteBuffer[] chunks;
+
+	/**
+	 * Maps the specified file.
+	 * @param file a file in MazeGenerator's binary format
+	 * @throws IllegalArgumentException if file is null or isn't in the binary format
+	 * @throws IOException if the file can't be read
+	 */
+	public MappedGrid(File file)
+		throws IOException
+	{
+		if (file == null) throw new IllegalArgumentException("null parameter");
+
+		try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+			FileChannel channel = input.getChannel();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER_BYTES, channel.size()));
+			if (header.remaining() < HEADER_BYTES || header.getInt() != MazeGenerator.BINARY_MAGIC) {
+				throw new IllegalArgumentException("File is not in the binary maze format");
+			}
+			if (header.getInt() != MazeGenerator.BINARY_VERSION) {
+				throw new IllegalArgumentException("Unsupported binary maze version");
+			}
+
+			width = header.getInt();
+			height = header.getInt();
+			start = new Point(header.getInt(), header.getInt());
+			end = new Point(header.getInt(), header.getInt());
+			rowBytes = ((width + 63) >>> 6) * Long.BYTES;
+			if (width <= 0 || height <= 0 || channel.size() < HEADER_BYTES + (long)rowBytes * height) {
+				throw new IllegalArgumentException("Binary maze file is truncated");
+			}
+
+			// The mapping stays valid after the channel is closed
+			rowsPerChunk = (int)Math.max(1, CHUNK_BYTES / rowBytes);
+			chunks = new ByteBuffer[(height + rowsPerChunk - 1) / rowsPerChunk];
+			for (int i = 0; i < chunks.length; i++) {
+				long offset = HEADER_BYTES + (long)i * rowsPerChunk * rowBytes;
+				int rows = Math.min(rowsPerChunk, height - i * rowsPerChunk);
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long)rows * rowBytes);
+			}
+		}
+	}
+
+	/**
+	 * Writes the layout of any grid in the binary format so it can be mapped.
+	 * @param grid the grid to write
+	 * @param file the file to write to
+	 * @throws IllegalArgumentException if a parameter is null
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(Grid grid, File file)
+		throws IOException
+	{
+		if (grid == null || file == null) throw new IllegalArgumentException("null parameter");
+
+		try (OutputStream output = new FileOutputStream(file)) {
+			DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+			int width = grid.getWidth();
+			data.writeInt(MazeGenerator.BINARY_MAGIC);
+			data.writeInt(MazeGenerator.BINARY_VERSION);
+			data.writeInt(width);
+			data.writeInt(grid.getHeight());
+			data.writeInt(grid.getStart().x);
+			data.writeInt(grid.getStart().y);
+			data.writeInt(grid.getEnd().x);
+			data.writeInt(grid.getEnd().y);
+
+			long[] words = new long[(width + 63) >>> 6];
+			for (int y = 0; y < grid.getHeight(); y++) {
+				Arrays.fill(words, 0);
+				for (int x = 0; x < width; x++) {
+					if (!grid.isPassable(x, y)) words[x >>> 6] |= 1L << x;
+				}
+				for (long word : words) {
+					data.writeLong(word);
+				}
+			}
+			data.flush();
+		}
+	}
+
+	@Override
+	public int getWidth()
+	{
+		return width;
+	}
+
+	@Override
+	public int getHeight()
+	{
+		return height;
+	}
+
+	@Override
+	public boolean isPassable(int x, int y)
+	{
+		if (x < 0 || y < 0 || x >= width || y >= height) return false;
+		int offset = (y % rowsPerChunk) * rowBytes + (x >>> 6) * Long.BYTES;
+		return (chunks[y / rowsPerChunk].getLong(offset) & (1L << x)) == 0;
+	}
+
+	@Override
+	public Point getStart()
+	{
+		return new Point(start);
+	}
+
+	@Override
+	public Point getEnd()
+	{
+		return new Point(end);
+	}
+}
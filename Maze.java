@@ -1,22 +1,29 @@
-import java.util.Scanner;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.List;
+import java.util.ArrayList;
 import java.io.File;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.UncheckedIOException;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.util.Iterator;
 
 import java.lang.IllegalArgumentException;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 
 /**
  * Takes in a text file representing the layout of a maze to use for pathfinding algorithms.
  * <p> Text file must only have specific characters (no spaces!!)
  * <p> * - empty spot
  * <p> # - wall
- * <p> 1 - start pathfinding node, must have one and only one
- * <p> 2 - end pathfinding node, must have one and only one
+ * <p> 1 - start pathfinding node, must have at least one
+ * <p> 2 - end pathfinding node, must have at least one
+ * <p> With more than one start or end, AstarPathfinding finds the shortest path from any start to any end.
  *
  * <p> Text must be in a rectangular shape
  * <p> Example
@@ -24,8 +31,10 @@ import java.io.FileNotFoundException;
  * <p> *#*
  * <p> *#*
  * <p> ***
+ *
+ * <p> Implements Grid so it can be searched directly, or copied into one of the more compact Grid implementations.
  */
-public class Maze
+public final class Maze implements Grid
 {
 	/**
 	 * Represents each type of tile in the maze
@@ -50,6 +59,20 @@ public class Maze
 		END
 	}
 	
+	/**
+	 * Receives the regions changed by each patch applied to a maze, so caches built from the maze can drop or
+	 * repair only the parts that changed
+	 */
+	public interface ChangeListener
+	{
+		/**
+		 * Called after a patch is applied, once the maze holds the new tiles.
+		 * @param maze the maze that changed
+		 * @param regions the rectangles of tiles the patch set, some tiles may have been set to the type they had
+		 */
+		void onChange(Maze maze, List<Rectangle> regions);
+	}
+	
 	// The char representations of each tile type
 	private static final Map<TileType, Character> TILE_CHARACTERS = new HashMap<>(
 		Map.of(
@@ -60,66 +83,79 @@ public class Maze
 	
 	private TileType[][] tiles;
 	private Point startTile, endTile;
+	// Every start and end tile in the order they appear in the file, startTile and endTile are the first ones
+	private List<Point> startTiles, endTiles;
+	// Number of patches applied since the maze was read
+	private long version;
+	private List<ChangeListener> listeners;
 	
 	/**
 	 * Constuctor that creates the maze's data using the specified file.
 	 * @param mapFile the file containing the maze's contents
 	 * @throws IllegalArgumentException if the text file is invalid
+	 * @throws UncheckedIOException if the file can't be read after it is opened
 	 */
 	public Maze(File mapFile)
 		throws FileNotFoundException
 	{
 		if (mapFile == null) throw new IllegalArgumentException("null parameter");
 	
-		// First check if file contains the right characters and layout to be considered a maze
+		// Read the file once, checking that it contains the right characters and layout to be considered a maze
 		// Also get the size of the maze
-		int sizeX = 0, sizeY = 0;
-		startTile = null;
-		endTile = null;
-		Scanner mazeInput = new Scanner(mapFile);
-		while (mazeInput.hasNextLine()) {
-			String lineInput = mazeInput.nextLine();
-			sizeY++;
-			
-			// width must be the same on each row.
-			if (sizeX == 0) {
-				sizeX = lineInput.length();
-			} else if (sizeX != lineInput.length()) {
-				throw new IllegalArgumentException("Maze in file must be a rectangle shape");
-			}
-			
-			// Must only contain specific characters. Get start and end tile.
-			for (int i = 0; i < lineInput.length(); i++) {
-				TileType type = characterToTileType(lineInput.charAt(i));
-				if (type == null) {
-					throw new IllegalArgumentException("File has improper characters");
-				} else if (type == TileType.START) {
-					startTile = new Point(i, sizeY - 1);
-				} else if (type == TileType.END) {
-					endTile = new Point(i, sizeY - 1);
+		int sizeX = 0;
+		List<String> lines = new ArrayList<>();
+		startTiles = new ArrayList<>();
+		endTiles = new ArrayList<>();
+		try (BufferedReader mazeInput = new BufferedReader(new FileReader(mapFile))) {
+			String lineInput;
+			while ((lineInput = mazeInput.readLine()) != null) {
+				lines.add(lineInput);
+				
+				// width must be the same on each row.
+				if (sizeX == 0) {
+					sizeX = lineInput.length();
+				} else if (sizeX != lineInput.length()) {
+					throw new IllegalArgumentException("Maze in file must be a rectangle shape");
+				}
+				
+				// Must only contain specific characters. Get start and end tile.
+				for (int i = 0; i < lineInput.length(); i++) {
+					TileType type = characterToTileType(lineInput.charAt(i));
+					if (type == null) {
+						throw new IllegalArgumentException("File has improper characters");
+					} else if (type == TileType.START) {
+						startTiles.add(new Point(i, lines.size() - 1));
+					} else if (type == TileType.END) {
+						endTiles.add(new Point(i, lines.size() - 1));
+					}
 				}
 			}
+		} catch (FileNotFoundException err) {
+			throw err;
+		} catch (IOException err) {
+			throw new UncheckedIOException(err);
 		}
 		
 		// Maze must have a starting and ending tile
-		if (startTile == null) {
+		if (startTiles.isEmpty()) {
 			throw new IllegalArgumentException("Maze must have a starting point");
 		}
 		
-		if (endTile == null) {
+		if (endTiles.isEmpty()) {
 			throw new IllegalArgumentException("Maze must have an ending point");
 		}
+		startTile = startTiles.get(0);
+		endTile = endTiles.get(0);
 		
-		// Now that we know the file is valid and we have the size of the maze, read in the data.
-		mazeInput = new Scanner(mapFile);
-		tiles = new TileType[sizeX][sizeY];
-		for (int y = 0; y < sizeY; y++) {
-			// Wont cause any error since we already know the number of lines in the file
-			String lineInput = mazeInput.nextLine();
+		// Now that we know the file is valid and we have the size of the maze, fill in the tiles.
+		tiles = new TileType[sizeX][lines.size()];
+		for (int y = 0; y < lines.size(); y++) {
+			String lineInput = lines.get(y);
 			for (int x = 0; x < lineInput.length(); x++) {
 				tiles[x][y] = characterToTileType(lineInput.charAt(x));
 			}
 		}
+		listeners = new ArrayList<>();
 	}
 	
 	/**
@@ -153,6 +189,18 @@ public class Maze
 		return tiles[x][y];
 	}
 	
+	/**
+	 * Returns whether a path can move through the tile at the specified x and y position
+	 * @param x the x-coordinate of the tile
+	 * @param y the y-coordinate of the tile
+	 * @return false if the tile is a wall or out of bounds, true otherwise
+	 */
+	public boolean isPassable(int x, int y)
+	{
+		TileType tile = getTile(x, y);
+		return tile != null && tile != TileType.WALL;
+	}
+	
 	/**
 	 * Returns the start position of the maze
 	 * @return start tile
@@ -172,24 +220,132 @@ public class Maze
 	}
 	
 	/**
-	 * Returns a string of the maze
-	 * @return string interpretation of the maze
+	 * Returns every start position of the maze in the order they appear in the file
+	 * @return start tiles
 	 */
-	public String toString()
+	public List<Point> getStarts()
 	{
-		String result = "";
-		for (int y = 0; y < getHeight(); y++) {
-			for (int x = 0; x < getWidth(); x++) {
-				result += tileTypeToCharacter(tiles[x][y]);
+		return Points.copy(startTiles);
+	}
+	
+	/**
+	 * Returns every end position of the maze in the order they appear in the file
+	 * @return end tiles
+	 */
+	public List<Point> getEnds()
+	{
+		return Points.copy(endTiles);
+	}
+	
+	/**
+	 * Returns the number of patches applied to the maze since it was read, so saved results can tell whether
+	 * the maze has changed since they were made
+	 * @return version
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+	
+	/**
+	 * Adds a listener that is told about the regions of every patch applied to the maze
+	 * @param listener the listener to add
+	 * @throws IllegalArgumentException if listener is null
+	 */
+	public void addChangeListener(ChangeListener listener)
+	{
+		if (listener == null) throw new IllegalArgumentException("null parameter");
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Removes a listener added with addChangeListener
+	 * @param listener the listener to remove
+	 */
+	public void removeChangeListener(ChangeListener listener)
+	{
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Sets the tiles changed by a patch in place, bumps the version and tells every listener which regions changed.
+	 * <p> Only the patched tiles are touched, so the time taken depends on the size of the patch and not of the maze.
+	 * New start and end tiles are added after the existing ones, so getStart and getEnd only move if their
+	 * tile is overwritten.
+	 * @param patch the changes to make
+	 * @throws IllegalArgumentException if patch is null, changes a tile outside the maze, or would leave the maze
+	 * without a start or an end. The maze isn't changed if the patch is rejected.
+	 */
+	public void apply(MazePatch patch)
+	{
+		if (patch == null) throw new IllegalArgumentException("null parameter");
+		
+		List<Rectangle> regions = patch.getRegions();
+		for (Rectangle region : regions) {
+			if (region.x < 0 || region.y < 0 || region.x + region.width > getWidth() || region.y + region.height > getHeight()) {
+				throw new IllegalArgumentException("Patch changes tiles outside the maze");
 			}
-			
-			// Add endline for each row except for the last
-			if (y != getHeight() - 1) {
-				result += "\n";
+		}
+		
+		// Keep the old tiles so a patch that removes every start or end can be undone
+		TileType[][] oldTiles = new TileType[regions.size()][];
+		List<Point> oldStarts = new ArrayList<>(startTiles), oldEnds = new ArrayList<>(endTiles);
+		for (int i = 0; i < regions.size(); i++) {
+			Rectangle region = regions.get(i);
+			TileType type = patch.getTileType(i);
+			oldTiles[i] = new TileType[region.width * region.height];
+			for (int y = region.y; y < region.y + region.height; y++) {
+				for (int x = region.x; x < region.x + region.width; x++) {
+					oldTiles[i][(y - region.y) * region.width + (x - region.x)] = tiles[x][y];
+					setTile(x, y, type);
+				}
+			}
+		}
+		
+		if (startTiles.isEmpty() || endTiles.isEmpty()) {
+			// Undo the changes from the last one back so overlapping changes get their first tiles back
+			for (int i = regions.size() - 1; i >= 0; i--) {
+				Rectangle region = regions.get(i);
+				for (int y = region.y; y < region.y + region.height; y++) {
+					for (int x = region.x; x < region.x + region.width; x++) {
+						tiles[x][y] = oldTiles[i][(y - region.y) * region.width + (x - region.x)];
+					}
+				}
 			}
+			boolean noStart = startTiles.isEmpty();
+			startTiles = oldStarts;
+			endTiles = oldEnds;
+			throw new IllegalArgumentException(noStart ? "Maze must have a starting point" : "Maze must have an ending point");
+		}
+		startTile = startTiles.get(0);
+		endTile = endTiles.get(0);
+		
+		version++;
+		for (ChangeListener listener : new ArrayList<>(listeners)) {
+			listener.onChange(this, regions);
 		}
+	}
+	
+	// Sets one tile, keeping the lists of start and end tiles up to date
+	private void setTile(int x, int y, TileType type)
+	{
+		TileType old = tiles[x][y];
+		if (old == type) return;
 		
-		return result;
+		if (old == TileType.START) startTiles.remove(new Point(x, y));
+		else if (old == TileType.END) endTiles.remove(new Point(x, y));
+		if (type == TileType.START) startTiles.add(new Point(x, y));
+		else if (type == TileType.END) endTiles.add(new Point(x, y));
+		tiles[x][y] = type;
+	}
+	
+	/**
+	 * Returns a string of the maze
+	 * @return string interpretation of the maze
+	 */
+	public String toString()
+	{
+		return draw(null);
 	}
 	
 	/**
@@ -201,29 +357,63 @@ public class Maze
 	{
 		if (path == null) return toString();
 		
-		Set<Point> moves = new HashSet<>();
+		// One bit per tile marks the moves, instead of a set of Points
+		BitSet moves = new BitSet(getWidth() * getHeight());
 		Iterator<Point> itr = path.iterator();
 		while (itr.hasNext()) {
-			moves.add(itr.next());
+			Point move = itr.next();
+			if (getTile(move.x, move.y) != null) moves.set(move.y * getWidth() + move.x);
+		}
+		return draw(moves);
+	}
+	
+	/**
+	 * Returns a String of the maze with the remaining tiles of a cursor's path traversing it.
+	 * <p> The cursor is read to its end, only one bit per tile of the maze is kept.
+	 * @param cursor the path to draw out on the maze
+	 * @return string interpretation of the maze with the path going through it. Returns just the maze string if cursor is null.
+	 * @throws IllegalArgumentException if the cursor was found in a maze of a different size
+	 * @throws IllegalStateException if the cursor is closed
+	 */
+	public String toString(PathCursor cursor)
+	{
+		if (cursor == null) return toString();
+		if (cursor.getWidth() != getWidth() || cursor.getHeight() != getHeight()) {
+			throw new IllegalArgumentException("cursor is from a different maze");
+		}
+		
+		BitSet moves = new BitSet(getWidth() * getHeight());
+		while (cursor.hasNext()) {
+			moves.set(cursor.nextTile());
+		}
+		return draw(moves);
+	}
+	
+	// Draws the maze into one buffer, with '+' on the empty tiles marked in moves. moves can be null.
+	private String draw(BitSet moves)
+	{
+		char[] characters = new char[TileType.values().length];
+		for (TileType type : TileType.values()) {
+			characters[type.ordinal()] = tileTypeToCharacter(type);
 		}
 		
-		String result = "";
+		StringBuilder result = new StringBuilder((getWidth() + 1) * getHeight());
 		for (int y = 0; y < getHeight(); y++) {
 			for (int x = 0; x < getWidth(); x++) {
-				if (tiles[x][y] == TileType.EMPTY && moves.contains(new Point(x, y))) {
-					result += "+";
+				if (moves != null && tiles[x][y] == TileType.EMPTY && moves.get(y * getWidth() + x)) {
+					result.append('+');
 				} else {
-					result += tileTypeToCharacter(tiles[x][y]);
+					result.append(characters[tiles[x][y].ordinal()]);
 				}
 			}
 			
 			// Add endline for each row except for the last
 			if (y != getHeight() - 1) {
-				result += "\n";
+				result.append('\n');
 			}
 		}
 		
-		return result;
+		return result.toString();
 	}
 	
 	/**
@@ -236,8 +426,8 @@ public class Maze
 		System.out.println("- Text file must only have specified characters (Can't have any spaces!)");
 		System.out.println("\t" + TILE_CHARACTERS.get(TileType.EMPTY) + "\tEmpty spot");
 		System.out.println("\t" + TILE_CHARACTERS.get(TileType.WALL) + "\tWall");
-		System.out.println("\t" + TILE_CHARACTERS.get(TileType.START) + "\tStart pathfinding node (Must have one and only one)");
-		System.out.println("\t" + TILE_CHARACTERS.get(TileType.END) + "\tFinish pathfinding node (Must have one and only one)");
+		System.out.println("\t" + TILE_CHARACTERS.get(TileType.START) + "\tStart pathfinding node (Must have at least one)");
+		System.out.println("\t" + TILE_CHARACTERS.get(TileType.END) + "\tFinish pathfinding node (Must have at least one)");
 		
 		System.out.println("- Layout must be in a rectangle shape");
 		System.out.println("\tExample:");
@@ -249,7 +439,7 @@ public class Maze
 	
 	// Converts the TileType to a char and returns it
 	// Returns a null byte char if the TileType doesn't represent any character
-	private static char tileTypeToCharacter(TileType tile)
+	static char tileTypeToCharacter(TileType tile)
 	{
 		if (TILE_CHARACTERS.containsKey(tile)) {
 			return TILE_CHARACTERS.get(tile);
@@ -260,7 +450,7 @@ public class Maze
 	
 	// Converts a char to a TileType enum and returns it
 	// Returns null if char doesn't represent any TileType
-	private static TileType characterToTileType(char character)
+	static TileType characterToTileType(char character)
 	{
 		Set<TileType> keySet = TILE_CHARACTERS.keySet();
 		for (TileType key : keySet) {
@@ -0,0 +1,678 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.awt.Point;
+
+import java.lang.IllegalArgumentException;
+import java.io.IOException;
+
+/**
+ * Generates seeded mazes and writes them to disk for load and scaling tests.
+ * <p> The same topology, size and seed always produce the same maze.
+ * <p> Rows are written as soon as they are generated. The ELLER, CAVES, RANDOM_OBSTACLES and ADVERSARIAL topologies
+ * only keep a few rows in memory so mazes of any size can be generated. RECURSIVE_BACKTRACKER and PRIM need the whole
+ * layout before the first row is known, so they keep it as a bitset (a few bits per tile).
+ *
+ * <p> Two output formats are supported.
+ * <p> TEXT - the same format read by Maze, one line per row.
+ * <p> BINARY - big-endian ints for the magic number, format version, width, height, start x, start y, end x and end y,
+ * followed by each row as ceil(width / 64) longs where bit (x % 64) of long (x / 64) is set if tile x is a wall.
+ */
+public class MazeGenerator
+{
+	/**
+	 * The magic number at the start of the binary format ("MAZE")
+	 */
+	public static final int BINARY_MAGIC = 0x4D415A45;
+
+	/**
+	 * The version of the binary format that is written
+	 */
+	public static final int BINARY_VERSION = 1;
+
+	/**
+	 * The kinds of mazes that can be generated
+	 */
+	public enum Topology
+	{
+		/**
+		 * Perfect maze made of long winding corridors (depth first search)
+		 */
+		RECURSIVE_BACKTRACKER,
+		/**
+		 * Perfect maze with many short branches (randomized Prim's algorithm)
+		 */
+		PRIM,
+		/**
+		 * Perfect maze generated one row at a time (Eller's algorithm)
+		 */
+		ELLER,
+		/**
+		 * Open caves made by smoothing random noise with a cellular automaton
+		 */
+		CAVES,
+		/**
+		 * Walls placed randomly with a fixed probability (the density)
+		 */
+		RANDOM_OBSTACLES,
+		/**
+		 * Scaled up version of failedMaze.txt, a wall cup between the start and end that traps greedy searches.
+		 * The layout only depends on the size.
+		 */
+		ADVERSARIAL
+	}
+
+	/**
+	 * The file formats mazes can be written in
+	 */
+	public enum Format
+	{
+		/**
+		 * The text format read by Maze
+		 */
+		TEXT,
+		/**
+		 * The bit packed binary format
+		 */
+		BINARY
+	}
+
+	// x and y offsets of the east, south, west and north neighbors
+	private static final int[] DIRECTION_X = {1, 0, -1, 0};
+	private static final int[] DIRECTION_Y = {0, 1, 0, -1};
+	// Number of smoothing passes over the noise for CAVES
+	private static final int CAVE_ITERATIONS = 4;
+
+	private Topology topology;
+	private int width, height;
+	private long seed;
+	private double density;
+
+	/**
+	 * Constructor that sets up a generator for mazes of the specified topology and size.
+	 * @param topology the kind of maze to generate
+	 * @param width the width of the maze, at least 5
+	 * @param height the height of the maze, at least 5
+	 * @param seed the seed of the random generator
+	 * @throws IllegalArgumentException if topology is null or the size is too small
+	 */
+	public MazeGenerator(Topology topology, int width, int height, long seed)
+	{
+		if (topology == null) throw new IllegalArgumentException("null parameter");
+		if (width < 5 || height < 5) throw new IllegalArgumentException("Maze must be at least 5x5");
+
+		this.topology = topology;
+		this.width = width;
+		this.height = height;
+		this.seed = seed;
+		this.density = topology == Topology.CAVES ? 0.45 : 0.3;
+	}
+
+	/**
+	 * Sets the chance of a tile starting as a wall for CAVES and RANDOM_OBSTACLES. Ignored by other topologies.
+	 * @param density the probability from 0 to 1
+	 * @throws IllegalArgumentException if density is not between 0 and 1
+	 */
+	public void setDensity(double density)
+	{
+		if (!(density >= 0 && density <= 1)) throw new IllegalArgumentException("density must be between 0 and 1");
+		this.density = density;
+	}
+
+	/**
+	 * Generates the maze and writes it to the specified file.
+	 * @param file the file to write to
+	 * @param format the format to write the maze in
+	 * @throws IllegalArgumentException if a parameter is null
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(File file, Format format)
+		throws IOException
+	{
+		if (file == null || format == null) throw new IllegalArgumentException("null parameter");
+
+		try (OutputStream output = new FileOutputStream(file)) {
+			write(output, format);
+		}
+	}
+
+	/**
+	 * Generates the maze and writes it to the specified stream. The stream is flushed but not closed.
+	 * @param output the stream to write to
+	 * @param format the format to write the maze in
+	 * @throws IllegalArgumentException if a parameter is null
+	 * @throws IOException if the stream can't be written to
+	 */
+	public void write(OutputStream output, Format format)
+		throws IOException
+	{
+		if (output == null || format == null) throw new IllegalArgumentException("null parameter");
+
+		RowSource source = createRowSource();
+		Point start = source.getStart();
+		Point end = source.getEnd();
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+
+		if (format == Format.BINARY) {
+			data.writeInt(BINARY_MAGIC);
+			data.writeInt(BINARY_VERSION);
+			data.writeInt(width);
+			data.writeInt(height);
+			data.writeInt(start.x);
+			data.writeInt(start.y);
+			data.writeInt(end.x);
+			data.writeInt(end.y);
+		}
+
+		// Buffers for one row are reused so memory doesn't grow with the height
+		boolean[] walls = new boolean[width];
+		byte[] characters = new byte[width + 1];
+		long[] words = new long[(width + 63) / 64];
+		byte wallCharacter = (byte)Maze.tileTypeToCharacter(Maze.TileType.WALL);
+		byte emptyCharacter = (byte)Maze.tileTypeToCharacter(Maze.TileType.EMPTY);
+		for (int y = 0; y < height; y++) {
+			source.nextRow(walls);
+			// The start and end are always open
+			if (y == start.y) walls[start.x] = false;
+			if (y == end.y) walls[end.x] = false;
+
+			if (format == Format.TEXT) {
+				for (int x = 0; x < width; x++) {
+					characters[x] = walls[x] ? wallCharacter : emptyCharacter;
+				}
+				if (y == start.y) characters[start.x] = (byte)Maze.tileTypeToCharacter(Maze.TileType.START);
+				if (y == end.y) characters[end.x] = (byte)Maze.tileTypeToCharacter(Maze.TileType.END);
+				characters[width] = '\n';
+				data.write(characters);
+			} else {
+				Arrays.fill(words, 0);
+				for (int x = 0; x < width; x++) {
+					if (walls[x]) words[x >>> 6] |= 1L << (x & 63);
+				}
+				for (long word : words) {
+					data.writeLong(word);
+				}
+			}
+		}
+
+		data.flush();
+	}
+
+	/**
+	 * Returns a number from 0 (inclusive) to 1 (exclusive) that only depends on the seed and the position.
+	 * <p> Used to place walls without keeping any state, so any tile can be computed on its own.
+	 * @param seed the seed of the noise
+	 * @param x the x coordinate of the tile
+	 * @param y the y coordinate of the tile
+	 * @return the noise value of the tile
+	 */
+	public static double noise(long seed, int x, int y)
+	{
+		// SplitMix64 finalizer over the seed and position
+		long z = seed + ((long)x << 32 | (y & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (z >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Generates a maze file from the command line.
+	 * <p> Usage: java MazeGenerator topology width height seed file [TEXT|BINARY] [density]
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args)
+		throws IOException
+	{
+		if (args.length < 5) {
+			System.out.println("Usage: java MazeGenerator topology width height seed file [TEXT|BINARY] [density]");
+			System.out.println("Topologies: " + Arrays.toString(Topology.values()));
+			return;
+		}
+
+		// NumberFormatException is an IllegalArgumentException, so bad numbers and unknown names both print the usage
+		MazeGenerator generator;
+		Format format;
+		try {
+			generator = new MazeGenerator(Topology.valueOf(args[0].toUpperCase()),
+				Integer.parseInt(args[1]), Integer.parseInt(args[2]), Long.parseLong(args[3]));
+			format = args.length > 5 ? Format.valueOf(args[5].toUpperCase()) : Format.TEXT;
+			if (args.length > 6) {
+				generator.setDensity(Double.parseDouble(args[6]));
+			}
+		} catch (IllegalArgumentException err) {
+			System.out.println("Usage: java MazeGenerator topology width height seed file [TEXT|BINARY] [density]");
+			System.out.println("Topologies: " + Arrays.toString(Topology.values()));
+			return;
+		}
+		generator.write(new File(args[4]), format);
+	}
+
+	// Creates the row generator for this generator's topology
+	private RowSource createRowSource()
+	{
+		switch (topology) {
+			case RECURSIVE_BACKTRACKER:
+			case PRIM:
+				return new CarvedRows();
+			case ELLER:
+				return new EllerRows();
+			case CAVES:
+				return new CaveRows();
+			case RANDOM_OBSTACLES:
+				return new ObstacleRows();
+			default:
+				return new AdversarialRows();
+		}
+	}
+
+	/*
+	 * Produces the rows of a maze from top to bottom.
+	 * The start and end are decided before any rows are produced so they can be written in the binary header.
+	 */
+	private abstract class RowSource
+	{
+		// Perfect mazes have their cells on odd coordinates so these are always open
+		Point getStart()
+		{
+			return new Point(1, 1);
+		}
+
+		Point getEnd()
+		{
+			return new Point(lastOdd(width), lastOdd(height));
+		}
+
+		// Fills walls with the next row, true for each wall
+		abstract void nextRow(boolean[] walls);
+	}
+
+	// Returns the largest odd coordinate that isn't on the border of a side with the specified length
+	private static int lastOdd(int length)
+	{
+		return (length - 2) % 2 == 1 ? length - 2 : length - 3;
+	}
+
+	/*
+	 * Perfect mazes carved into a bitset of the whole layout (RECURSIVE_BACKTRACKER and PRIM).
+	 * Cells are the tiles at odd coordinates and the tiles between two neighboring cells are opened to connect them.
+	 */
+	private class CarvedRows extends RowSource
+	{
+		private int cellsX, cellsY;
+		// Set bits are walls, indexed by y * width + x
+		private long[] walls;
+		private int nextY;
+		private SplittableRandom random;
+
+		CarvedRows()
+		{
+			cellsX = (width - 1) / 2;
+			cellsY = (height - 1) / 2;
+			if ((long)cellsX * cellsY > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Maze is too large for " + topology + ", use ELLER instead");
+			}
+
+			walls = new long[(int)(((long)width * height + 63) / 64)];
+			Arrays.fill(walls, -1L);
+			random = new SplittableRandom(seed);
+			if (topology == Topology.PRIM) {
+				carvePrim();
+			} else {
+				carveBacktracker();
+			}
+		}
+
+		@Override
+		void nextRow(boolean[] row)
+		{
+			for (int x = 0; x < width; x++) {
+				row[x] = isWall(x, nextY);
+			}
+			nextY++;
+		}
+
+		private void carveBacktracker()
+		{
+			// Direction from each cell back to the cell it was carved from, 2 bits per cell.
+			// Following these back replaces an explicit stack of cells.
+			long[] parents = new long[(int)(((long)cellsX * cellsY + 31) / 32)];
+			int[] candidates = new int[4];
+			int cell = 0;
+			open(1, 1);
+			while (true) {
+				int cellX = cell % cellsX, cellY = cell / cellsX;
+				int count = 0;
+				for (int direction = 0; direction < 4; direction++) {
+					if (isUncarvedCell(cellX + DIRECTION_X[direction], cellY + DIRECTION_Y[direction])) {
+						candidates[count++] = direction;
+					}
+				}
+
+				if (count > 0) {
+					int direction = candidates[random.nextInt(count)];
+					int nextX = cellX + DIRECTION_X[direction], nextY = cellY + DIRECTION_Y[direction];
+					connect(cellX, cellY, direction);
+					cell = nextY * cellsX + nextX;
+					int back = (direction + 2) % 4;
+					parents[cell >>> 5] |= (long)back << ((cell & 31) * 2);
+				} else if (cell == 0) {
+					break;
+				} else {
+					int back = (int)(parents[cell >>> 5] >>> ((cell & 31) * 2)) & 3;
+					cell = (cellY + DIRECTION_Y[back]) * cellsX + cellX + DIRECTION_X[back];
+				}
+			}
+		}
+
+		private void carvePrim()
+		{
+			// Cells next to the carved area that can be carved next
+			long[] inFrontier = new long[(int)(((long)cellsX * cellsY + 63) / 64)];
+			int[] frontier = new int[64];
+			int frontierSize = 0;
+			int[] candidates = new int[4];
+
+			open(1, 1);
+			int cell = 0;
+			while (true) {
+				// Add the uncarved neighbors of the newly carved cell to the frontier
+				int cellX = cell % cellsX, cellY = cell / cellsX;
+				for (int direction = 0; direction < 4; direction++) {
+					int nextX = cellX + DIRECTION_X[direction], nextY = cellY + DIRECTION_Y[direction];
+					if (!isUncarvedCell(nextX, nextY)) continue;
+					int next = nextY * cellsX + nextX;
+					if ((inFrontier[next >>> 6] & (1L << next)) != 0) continue;
+					inFrontier[next >>> 6] |= 1L << next;
+					if (frontierSize == frontier.length) {
+						frontier = Arrays.copyOf(frontier, frontierSize * 2);
+					}
+					frontier[frontierSize++] = next;
+				}
+
+				if (frontierSize == 0) break;
+
+				// Take a random frontier cell and connect it to a random carved neighbor
+				int index = random.nextInt(frontierSize);
+				cell = frontier[index];
+				frontier[index] = frontier[--frontierSize];
+				cellX = cell % cellsX;
+				cellY = cell / cellsX;
+				int count = 0;
+				for (int direction = 0; direction < 4; direction++) {
+					int nextX = cellX + DIRECTION_X[direction], nextY = cellY + DIRECTION_Y[direction];
+					if (nextX >= 0 && nextY >= 0 && nextX < cellsX && nextY < cellsY && !isWall(nextX * 2 + 1, nextY * 2 + 1)) {
+						candidates[count++] = direction;
+					}
+				}
+				connect(cellX, cellY, candidates[random.nextInt(count)]);
+			}
+		}
+
+		// Returns whether the cell is inside the maze and hasn't been carved yet
+		private boolean isUncarvedCell(int cellX, int cellY)
+		{
+			return cellX >= 0 && cellY >= 0 && cellX < cellsX && cellY < cellsY && isWall(cellX * 2 + 1, cellY * 2 + 1);
+		}
+
+		// Opens the cell, the neighboring cell in the direction and the tile between them
+		private void connect(int cellX, int cellY, int direction)
+		{
+			int x = cellX * 2 + 1, y = cellY * 2 + 1;
+			open(x, y);
+			open(x + DIRECTION_X[direction], y + DIRECTION_Y[direction]);
+			open(x + DIRECTION_X[direction] * 2, y + DIRECTION_Y[direction] * 2);
+		}
+
+		// Opens the tile at the tile coordinates
+		private void open(int x, int y)
+		{
+			long tile = (long)y * width + x;
+			walls[(int)(tile >>> 6)] &= ~(1L << tile);
+		}
+
+		private boolean isWall(int x, int y)
+		{
+			long tile = (long)y * width + x;
+			return (walls[(int)(tile >>> 6)] & (1L << tile)) != 0;
+		}
+	}
+
+	/*
+	 * Perfect maze generated with Eller's algorithm, only the current row of cells is kept in memory.
+	 * Each row of cells produces two rows of tiles, the cells with the walls between them and the walls below them.
+	 */
+	private class EllerRows extends RowSource
+	{
+		private int cellsX, cellsY;
+		private SplittableRandom random;
+		// Set of each cell in the current row, used as nodes of a union find
+		private int[] sets;
+		private int[] parents;
+		private boolean[] eastOpen, southOpen;
+		// Scratch arrays indexed by set
+		private int[] remaining, renamed;
+		private boolean[] hasSouth;
+		private int tileY, cellY;
+
+		EllerRows()
+		{
+			cellsX = (width - 1) / 2;
+			cellsY = (height - 1) / 2;
+			random = new SplittableRandom(seed);
+			sets = new int[cellsX];
+			parents = new int[cellsX];
+			eastOpen = new boolean[cellsX];
+			southOpen = new boolean[cellsX];
+			remaining = new int[cellsX];
+			renamed = new int[cellsX];
+			hasSouth = new boolean[cellsX];
+			// Every cell of the first row starts in its own set
+			for (int i = 0; i < cellsX; i++) {
+				sets[i] = i;
+			}
+		}
+
+		@Override
+		void nextRow(boolean[] row)
+		{
+			Arrays.fill(row, true);
+			if (tileY > 0 && tileY <= cellsY * 2) {
+				if (tileY % 2 == 1) {
+					generateCellRow();
+					for (int i = 0; i < cellsX; i++) {
+						row[i * 2 + 1] = false;
+						if (eastOpen[i]) row[i * 2 + 2] = false;
+					}
+				} else {
+					for (int i = 0; i < cellsX; i++) {
+						if (southOpen[i]) row[i * 2 + 1] = false;
+					}
+				}
+			}
+			tileY++;
+		}
+
+		// Decides the east and south openings of the next row of cells
+		private void generateCellRow()
+		{
+			boolean lastRow = cellY == cellsY - 1;
+			for (int i = 0; i < cellsX; i++) {
+				parents[i] = i;
+			}
+
+			// Randomly join neighboring cells of different sets, the last row joins all of them
+			for (int i = 0; i < cellsX; i++) {
+				eastOpen[i] = false;
+				if (i == cellsX - 1) continue;
+				int a = find(sets[i]), b = find(sets[i + 1]);
+				if (a != b && (lastRow || random.nextBoolean())) {
+					parents[a] = b;
+					eastOpen[i] = true;
+				}
+			}
+
+			// Every set must continue into the next row through at least one south opening
+			Arrays.fill(remaining, 0);
+			Arrays.fill(hasSouth, false);
+			for (int i = 0; i < cellsX; i++) {
+				remaining[find(sets[i])]++;
+			}
+			for (int i = 0; i < cellsX; i++) {
+				int set = find(sets[i]);
+				remaining[set]--;
+				southOpen[i] = !lastRow && (random.nextBoolean() || (remaining[set] == 0 && !hasSouth[set]));
+				if (southOpen[i]) hasSouth[set] = true;
+			}
+
+			// Carry the sets down and renumber them so they stay below cellsX, cells without an opening get new sets
+			Arrays.fill(renamed, -1);
+			int nextSet = 0;
+			for (int i = 0; i < cellsX; i++) {
+				if (!southOpen[i]) continue;
+				int set = find(sets[i]);
+				if (renamed[set] == -1) renamed[set] = nextSet++;
+			}
+			for (int i = 0; i < cellsX; i++) {
+				sets[i] = southOpen[i] ? renamed[find(sets[i])] : nextSet++;
+			}
+			cellY++;
+		}
+
+		private int find(int set)
+		{
+			while (parents[set] != set) {
+				parents[set] = parents[parents[set]];
+				set = parents[set];
+			}
+			return set;
+		}
+	}
+
+	/*
+	 * Cellular automaton caves. Each smoothing pass only needs the three rows around a tile from the pass before,
+	 * so every pass keeps a window of three rows and pulls new rows from the pass before it when needed.
+	 */
+	private class CaveRows extends RowSource
+	{
+		// Rows of each pass, indexed by pass then y % 3
+		private boolean[][][] windows;
+		// Number of rows produced by each pass
+		private int[] produced;
+
+		CaveRows()
+		{
+			windows = new boolean[CAVE_ITERATIONS + 1][3][width];
+			produced = new int[CAVE_ITERATIONS + 1];
+		}
+
+		@Override
+		void nextRow(boolean[] row)
+		{
+			int y = produced[CAVE_ITERATIONS];
+			advance(CAVE_ITERATIONS);
+			System.arraycopy(windows[CAVE_ITERATIONS][y % 3], 0, row, 0, width);
+			// Keep a solid border so the caves stay closed
+			row[0] = true;
+			row[width - 1] = true;
+			if (y == 0 || y == height - 1) Arrays.fill(row, true);
+		}
+
+		// Produces the next row of the specified pass
+		private void advance(int pass)
+		{
+			int y = produced[pass];
+			boolean[] row = windows[pass][y % 3];
+			if (pass == 0) {
+				for (int x = 0; x < width; x++) {
+					row[x] = noise(seed, x, y) < density;
+				}
+			} else {
+				// The pass before must have produced the row below this one
+				int needed = Math.min(y + 1, height - 1);
+				while (produced[pass - 1] <= needed) {
+					advance(pass - 1);
+				}
+
+				// A tile becomes a wall if most of the tiles around it are walls, out of bounds counts as a wall
+				boolean[][] before = windows[pass - 1];
+				for (int x = 0; x < width; x++) {
+					int count = 0;
+					for (int dy = -1; dy <= 1; dy++) {
+						for (int dx = -1; dx <= 1; dx++) {
+							int nx = x + dx, ny = y + dy;
+							if (nx < 0 || ny < 0 || nx >= width || ny >= height || before[ny % 3][nx]) {
+								count++;
+							}
+						}
+					}
+					row[x] = count >= 5;
+				}
+			}
+			produced[pass]++;
+		}
+	}
+
+	/*
+	 * Walls placed independently on each tile with the density as the probability.
+	 */
+	private class ObstacleRows extends RowSource
+	{
+		private int nextY;
+
+		@Override
+		void nextRow(boolean[] row)
+		{
+			for (int x = 0; x < width; x++) {
+				row[x] = noise(seed, x, nextY) < density;
+			}
+			nextY++;
+		}
+	}
+
+	/*
+	 * An open field with a cup shaped wall opening towards the start and the end right behind it, like failedMaze.txt.
+	 * Searches that only follow the estimated distance go into the cup first.
+	 */
+	private class AdversarialRows extends RowSource
+	{
+		private int nextY;
+		private int cupTop, cupBottom, cupLeft, cupRight;
+
+		AdversarialRows()
+		{
+			cupTop = height / 8;
+			cupBottom = height - 1 - height / 8;
+			cupRight = width * 3 / 4;
+			cupLeft = Math.max(width * 3 / 8, getStart().x + 1);
+		}
+
+		@Override
+		Point getStart()
+		{
+			return new Point(width / 8, height / 2);
+		}
+
+		@Override
+		Point getEnd()
+		{
+			return new Point(cupRight + 1, height / 2);
+		}
+
+		@Override
+		void nextRow(boolean[] row)
+		{
+			Arrays.fill(row, false);
+			int y = nextY++;
+			if (y == cupTop || y == cupBottom) {
+				Arrays.fill(row, cupLeft, cupRight + 1, true);
+			} else if (y > cupTop && y < cupBottom) {
+				row[cupRight] = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,626 @@
+import java.util.Arrays;
+import java.util.List;
+import java.awt.Point;
+
+/**
+ * A reduced graph of a Maze that pathfinding searches can run on instead of the individual tiles.
+ * <p> The graph is built once in two passes. Dead ends are filled first: a tile with at most one open neighbor
+ * can never be part of a shortest path between two other tiles, so it is removed. This repeats until no more dead
+ * ends are left. Each filled tile remembers the neighbor it hung off, so the filled tiles form trees hanging off
+ * the open tiles (or whole trees where a part of the maze has no loops).
+ * <p> Corridors are then contracted: every remaining tile with exactly two open neighbors is only a step between
+ * two junctions, so the junctions become the nodes of the graph and each corridor becomes a single weighted edge
+ * between them. A loop without any junction gets one of its tiles as a node.
+ * <p> Each query attaches its endpoints for that query only: an endpoint in a filled tree climbs to the open tile
+ * the tree hangs off, and an endpoint in a corridor walks to the nodes at both ends of it. An A* search on the
+ * graph then only visits junctions, and the result is expanded back into a full tile Path. Building the graph
+ * costs about as much as one search of the whole maze, so it pays off once the same maze gets many queries.
+ * <p> Queries don't change the graph, so several threads can query it at once.
+ */
+public class MazeGraph
+{
+	// x and y offsets of the east, south, west and north neighbors
+	private static final int[] DIRECTION_X = {1, 0, -1, 0};
+	private static final int[] DIRECTION_Y = {0, 1, 0, -1};
+	// Largest number of last tiles the estimate is worked out for, searches to more use no estimate
+	private static final int MAX_ESTIMATED_TILES = 16;
+
+	private Grid maze;
+	private int width, height;
+	// Tiles that are still open after dead ends are filled, indexed by y * width + x
+	private boolean[] open;
+	// Direction from each filled tile to the tile it hung off, -1 for open tiles and tiles that hung off nothing
+	private byte[] fillDirections;
+	// Node index of each tile, -1 if the tile is not a node
+	private int[] tileNodes;
+	// Tile index of each node
+	private int[] nodeTiles;
+
+	// Edges of each node are stored from edgeOffsets[node] up to edgeOffsets[node + 1]
+	private int[] edgeOffsets;
+	private int[] edgeTargets;
+	private int[] edgeWeights;
+	// Direction of the first step from the node into the corridor
+	private byte[] edgeDirections;
+
+	/**
+	 * Builds the reduced graph of the specified maze.
+	 * @param maze the maze to reduce
+	 * @throws IllegalArgumentException if maze is null
+	 */
+	public MazeGraph(Grid maze)
+	{
+		if (maze == null) throw new IllegalArgumentException("null parameter");
+
+		this.maze = maze;
+		this.width = maze.getWidth();
+		this.height = maze.getHeight();
+
+		fillDeadEnds();
+		createNodes();
+		contractCorridors();
+	}
+
+	/**
+	 * Returns the number of nodes left in the graph after reduction
+	 * @return node count
+	 */
+	public int getNodeCount()
+	{
+		return nodeTiles.length;
+	}
+
+	/**
+	 * Returns the number of directed edges in the graph. Each corridor is counted once from each end.
+	 * @return edge count
+	 */
+	public int getEdgeCount()
+	{
+		return edgeTargets.length;
+	}
+
+	/**
+	 * Finds the shortest path from any of the maze's starts to any of its ends by searching the reduced graph.
+	 * @return the shortest path between a start and an end tile. Returns null if there is no possible path.
+	 */
+	public Path findPath()
+	{
+		return findPath(toTiles(maze.getStarts()), toTiles(maze.getEnds()));
+	}
+
+	/**
+	 * Finds the shortest path between two tiles by searching the reduced graph.
+	 * @param from the tile the path starts at
+	 * @param to the tile the path ends at
+	 * @return the shortest path between the two tiles. Returns null if there is no possible path.
+	 * @throws IllegalArgumentException if a parameter is null, or a tile is a wall or outside of the maze
+	 */
+	public Path findPath(Point from, Point to)
+	{
+		if (from == null || to == null) throw new IllegalArgumentException("null parameter");
+		return findPath(toTiles(List.of(from)), toTiles(List.of(to)));
+	}
+
+	/*
+	 * Finds the shortest path from any of the first tiles to any of the last tiles.
+	 * <p> The search starts from the nodes around the first tiles and finishes at a virtual target node joined from
+	 * the nodes around the last tiles. A first and a last tile in the same filled tree or corridor are also joined
+	 * straight to the target, since the path between them may not go through any node.
+	 */
+	private Path findPath(int[] firstTiles, int[] lastTiles)
+	{
+		Endpoint[] lasts = new Endpoint[lastTiles.length];
+		// Last endpoint anchored at each tile, to find the ones on a first endpoint's corridor
+		LongIntMap lastAnchors = new LongIntMap();
+		for (int i = 0; i < lasts.length; i++) {
+			lasts[i] = new Endpoint(lastTiles[i]);
+			int other = lastAnchors.get(lasts[i].anchor, -1);
+			if (other == -1 || lasts[other].anchorDistance > lasts[i].anchorDistance) lastAnchors.put(lasts[i].anchor, i);
+		}
+		Endpoint[] firsts = new Endpoint[firstTiles.length];
+		for (int i = 0; i < firsts.length; i++) {
+			firsts[i] = new Endpoint(firstTiles[i]);
+		}
+
+		// The best path found so far that doesn't go through a node
+		int direct = Integer.MAX_VALUE;
+		int directFirst = -1, directLast = -1, directSide = -1;
+		for (int i = 0; i < firsts.length; i++) {
+			Endpoint first = firsts[i];
+			for (int j = 0; j < lasts.length; j++) {
+				if (lasts[j].anchor != first.anchor) continue;
+				int distance = getTreeDistance(first.tile, lasts[j].tile);
+				if (distance < direct) {
+					direct = distance;
+					directFirst = i;
+					directLast = j;
+					directSide = -1;
+				}
+			}
+			for (int side = 0; side < first.nodeCount; side++) {
+				if (first.directions[side] == -1) continue;
+				int steps = 0;
+				int previous = first.anchor, tile = getNeighbor(previous, first.directions[side]);
+				while (true) {
+					steps++;
+					int last = lastAnchors.get(tile, -1);
+					if (last != -1 && first.anchorDistance + steps + lasts[last].anchorDistance < direct) {
+						direct = first.anchorDistance + steps + lasts[last].anchorDistance;
+						directFirst = i;
+						directLast = last;
+						directSide = side;
+					}
+					if (tileNodes[tile] != -1) break;
+					int next = getCorridorExit(tile, previous);
+					previous = tile;
+					tile = next;
+				}
+			}
+		}
+
+		// Distance from each node around the last tiles to the closest of them, and the endpoint and side it is for
+		LongIntMap targetDistances = new LongIntMap();
+		LongIntMap targetSides = new LongIntMap();
+		for (int j = 0; j < lasts.length; j++) {
+			for (int side = 0; side < lasts[j].nodeCount; side++) {
+				int node = lasts[j].nodes[side];
+				if (lasts[j].nodeDistances[side] < targetDistances.get(node, Integer.MAX_VALUE)) {
+					targetDistances.put(node, lasts[j].nodeDistances[side]);
+					targetSides.put(node, j * 2 + side);
+				}
+			}
+		}
+
+		// A* on the graph. Entries hold the F value in the high bits and the node in the low bits, with the target
+		// as node index nodeTiles.length. Nodes joined to the first tiles have parent edge -1 - (endpoint * 2 + side).
+		int targetNode = nodeTiles.length;
+		int[] gValues = new int[nodeTiles.length];
+		int[] parentEdges = new int[nodeTiles.length];
+		Arrays.fill(gValues, Integer.MAX_VALUE);
+		LongHeap queue = new LongHeap();
+		int targetG = direct, targetParent = -1;
+		if (direct != Integer.MAX_VALUE) queue.add(pack(direct, targetNode));
+		for (int i = 0; i < firsts.length; i++) {
+			for (int side = 0; side < firsts[i].nodeCount; side++) {
+				int node = firsts[i].nodes[side], g = firsts[i].nodeDistances[side];
+				if (g >= gValues[node]) continue;
+				gValues[node] = g;
+				parentEdges[node] = -1 - (i * 2 + side);
+				queue.add(pack(g + estimate(node, lastTiles), node));
+			}
+		}
+		while (!queue.isEmpty()) {
+			long entry = queue.poll();
+			int node = (int)entry;
+			if (node == targetNode) break;
+			int g = gValues[node];
+			// Skip entries that were replaced by a shorter distance
+			if ((int)(entry >>> 32) > g + estimate(node, lastTiles)) continue;
+
+			int attached = targetDistances.get(node, -1);
+			if (attached != -1 && g + attached < targetG) {
+				targetG = g + attached;
+				targetParent = node;
+				queue.add(pack(targetG, targetNode));
+			}
+			for (int edge = edgeOffsets[node]; edge < edgeOffsets[node + 1]; edge++) {
+				int next = edgeTargets[edge];
+				int nextG = g + edgeWeights[edge];
+				if (nextG >= gValues[next]) continue;
+				gValues[next] = nextG;
+				parentEdges[next] = edge;
+				queue.add(pack(nextG + estimate(next, lastTiles), next));
+			}
+		}
+
+		if (targetG == Integer.MAX_VALUE) return null;
+
+		Path path = new Path();
+		if (targetParent == -1) {
+			// The path doesn't go through a node
+			Endpoint first = firsts[directFirst], last = lasts[directLast];
+			if (directSide == -1) {
+				pushTreePath(first.tile, last.tile, path);
+				return path;
+			}
+			pushTiles(climb(first.tile), false, path);
+			pushTiles(walk(first.anchor, first.directions[directSide], last.anchor), false, path);
+			pushTiles(climb(last.tile), true, path, 1);
+			return path;
+		}
+
+		// Collect the graph edges from the last node back to the node joined to the first tiles
+		int firstNode = targetParent;
+		int edgeCount = 0;
+		while (parentEdges[firstNode] >= 0) {
+			firstNode = getEdgeSource(parentEdges[firstNode]);
+			edgeCount++;
+		}
+		int[] edges = new int[edgeCount];
+		for (int node = targetParent; node != firstNode; node = getEdgeSource(parentEdges[node])) {
+			edges[--edgeCount] = parentEdges[node];
+		}
+
+		// Climb from the first tile to its anchor and walk to the first node, follow the corridors, then walk from
+		// the last node to the last tile's anchor and climb down to the last tile
+		int firstCode = -1 - parentEdges[firstNode];
+		Endpoint first = firsts[firstCode / 2];
+		pushTiles(climb(first.tile), false, path);
+		if (first.directions[firstCode % 2] != -1) {
+			pushTiles(walk(first.anchor, first.directions[firstCode % 2], -1), false, path);
+		}
+		int tile = nodeTiles[firstNode];
+		for (int edge : edges) {
+			tile = walkCorridor(tile, edgeDirections[edge], path);
+		}
+		int lastCode = targetSides.get(targetParent, -1);
+		Endpoint last = lasts[lastCode / 2];
+		if (last.directions[lastCode % 2] != -1) {
+			pushTiles(walk(last.anchor, last.directions[lastCode % 2], -1), true, path, 1);
+			path.push(last.anchor % width, last.anchor / width);
+		}
+		pushTiles(climb(last.tile), true, path, 1);
+		return path;
+	}
+
+	/*
+	 * An endpoint of a query and the nodes it is joined to.
+	 * <p> The anchor is the open tile the endpoint's filled tree hangs off, the endpoint itself if it is open, or
+	 * the root of its tree if the tree hangs off nothing. A node anchor is joined to itself, a corridor anchor to the
+	 * nodes at both ends of its corridor, and a tree that hangs off nothing to no nodes.
+	 */
+	private class Endpoint
+	{
+		int tile;
+		int anchor, anchorDistance;
+		int nodeCount;
+		int[] nodes = new int[2];
+		int[] nodeDistances = new int[2];
+		// Direction of the first step from the anchor towards each node, -1 if the anchor is the node
+		int[] directions = new int[2];
+
+		Endpoint(int tile)
+		{
+			this.tile = tile;
+			anchor = tile;
+			while (fillDirections[anchor] != -1) {
+				anchor = getStep(anchor, fillDirections[anchor]);
+				anchorDistance++;
+			}
+			if (!open[anchor]) return;
+
+			if (tileNodes[anchor] != -1) {
+				nodes[0] = tileNodes[anchor];
+				nodeDistances[0] = anchorDistance;
+				directions[0] = -1;
+				nodeCount = 1;
+				return;
+			}
+			for (int direction = 0; direction < 4; direction++) {
+				if (getNeighbor(anchor, direction) == -1) continue;
+				int previous = anchor, next = getNeighbor(anchor, direction), steps = 1;
+				while (tileNodes[next] == -1) {
+					int exit = getCorridorExit(next, previous);
+					previous = next;
+					next = exit;
+					steps++;
+				}
+				nodes[nodeCount] = tileNodes[next];
+				nodeDistances[nodeCount] = anchorDistance + steps;
+				directions[nodeCount] = direction;
+				nodeCount++;
+			}
+		}
+	}
+
+	// Returns the number of steps between two tiles with the same anchor, through the tree they hang in
+	private int getTreeDistance(int first, int last)
+	{
+		LongIntMap firstSteps = new LongIntMap();
+		int steps = 0;
+		for (int tile : climb(first)) {
+			firstSteps.put(tile, steps++);
+		}
+		steps = 0;
+		for (int tile : climb(last)) {
+			int meeting = firstSteps.get(tile, -1);
+			if (meeting != -1) return meeting + steps;
+			steps++;
+		}
+		return -1;
+	}
+
+	// Pushes the path between two tiles with the same anchor, climbing from the first to where their climbs meet
+	private void pushTreePath(int first, int last, Path path)
+	{
+		int[] lastClimb = climb(last);
+		LongIntMap lastSteps = new LongIntMap();
+		for (int i = 0; i < lastClimb.length; i++) {
+			lastSteps.put(lastClimb[i], i);
+		}
+		for (int tile : climb(first)) {
+			path.push(tile % width, tile / width);
+			int meeting = lastSteps.get(tile, -1);
+			if (meeting != -1) {
+				for (int i = meeting - 1; i >= 0; i--) {
+					path.push(lastClimb[i] % width, lastClimb[i] / width);
+				}
+				return;
+			}
+		}
+	}
+
+	// Returns the tiles from a tile up its filled tree to its anchor, both included
+	private int[] climb(int tile)
+	{
+		int count = 1;
+		for (int step = tile; fillDirections[step] != -1; step = getStep(step, fillDirections[step])) {
+			count++;
+		}
+		int[] tiles = new int[count];
+		tiles[0] = tile;
+		for (int i = 1; i < count; i++) {
+			tiles[i] = getStep(tiles[i - 1], fillDirections[tiles[i - 1]]);
+		}
+		return tiles;
+	}
+
+	// Returns the tiles after an open tile along its corridor in the direction, up to a node or the stop tile
+	private int[] walk(int tile, int direction, int stop)
+	{
+		int[] tiles = new int[16];
+		int count = 0;
+		int previous = tile;
+		tile = getNeighbor(tile, direction);
+		while (true) {
+			if (count == tiles.length) tiles = Arrays.copyOf(tiles, count * 2);
+			tiles[count++] = tile;
+			if (tile == stop || tileNodes[tile] != -1) break;
+			int next = getCorridorExit(tile, previous);
+			previous = tile;
+			tile = next;
+		}
+		return Arrays.copyOf(tiles, count);
+	}
+
+	// Pushes the tiles onto the path in order or reversed
+	private void pushTiles(int[] tiles, boolean reversed, Path path)
+	{
+		pushTiles(tiles, reversed, path, 0);
+	}
+
+	// Pushes the tiles onto the path in order or reversed, leaving out the specified number of tiles at the end
+	private void pushTiles(int[] tiles, boolean reversed, Path path, int skipped)
+	{
+		for (int i = 0; i < tiles.length - skipped; i++) {
+			int tile = reversed ? tiles[tiles.length - 1 - i - skipped] : tiles[i];
+			path.push(tile % width, tile / width);
+		}
+	}
+
+	// Returns the Manhattan distance from the node to the closest of the tiles, 0 if there are too many to check
+	private int estimate(int node, int[] tiles)
+	{
+		if (node == nodeTiles.length || tiles.length > MAX_ESTIMATED_TILES) return 0;
+		int x = nodeTiles[node] % width, y = nodeTiles[node] / width;
+		int best = Integer.MAX_VALUE;
+		for (int tile : tiles) {
+			best = Math.min(best, Math.abs(tile % width - x) + Math.abs(tile / width - y));
+		}
+		return best;
+	}
+
+	/*
+	 * Removes dead ends until every open tile has at least two open neighbors.
+	 */
+	private void fillDeadEnds()
+	{
+		open = new boolean[width * height];
+		byte[] neighborCounts = new byte[width * height];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				open[y * width + x] = maze.isPassable(x, y);
+			}
+		}
+
+		// Each tile is queued at most once, when its open neighbors first drop to one
+		int[] deadEnds = new int[open.length];
+		int deadEndCount = 0;
+		for (int tile = 0; tile < open.length; tile++) {
+			if (!open[tile]) continue;
+			neighborCounts[tile] = (byte)countOpenNeighbors(tile);
+			if (neighborCounts[tile] <= 1) {
+				deadEnds[deadEndCount++] = tile;
+			}
+		}
+
+		// Filling a dead end can turn the tile before it into a new dead end. The dead end hangs off its one open
+		// neighbor, which is always filled later or never.
+		fillDirections = new byte[open.length];
+		Arrays.fill(fillDirections, (byte)-1);
+		for (int next = 0; next < deadEndCount; next++) {
+			int tile = deadEnds[next];
+			open[tile] = false;
+			for (int direction = 0; direction < 4; direction++) {
+				int neighbor = getNeighbor(tile, direction);
+				if (neighbor == -1) continue;
+				fillDirections[tile] = (byte)direction;
+				neighborCounts[neighbor]--;
+				if (neighborCounts[neighbor] == 1) {
+					deadEnds[deadEndCount++] = neighbor;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Makes a node out of every open tile that isn't part of a corridor.
+	 * <p> A loop made only of corridor tiles gets its first tile as a node, so every corridor ends at a node.
+	 */
+	private void createNodes()
+	{
+		tileNodes = new int[width * height];
+		Arrays.fill(tileNodes, -1);
+		int nodeCount = 0;
+		for (int tile = 0; tile < open.length; tile++) {
+			if (open[tile] && countOpenNeighbors(tile) != 2) {
+				tileNodes[tile] = nodeCount++;
+			}
+		}
+
+		// Walk each corridor once from its first tile, a walk that comes back to that tile went around a loop
+		boolean[] walked = new boolean[open.length];
+		for (int tile = 0; tile < open.length; tile++) {
+			if (!open[tile] || tileNodes[tile] != -1 || walked[tile]) continue;
+			walked[tile] = true;
+			for (int direction = 0; direction < 4; direction++) {
+				int previous = tile, next = getNeighbor(tile, direction);
+				if (next == -1) continue;
+				while (next != tile && tileNodes[next] == -1) {
+					walked[next] = true;
+					int exit = getCorridorExit(next, previous);
+					previous = next;
+					next = exit;
+				}
+				if (next == tile) {
+					tileNodes[tile] = nodeCount++;
+					break;
+				}
+			}
+		}
+
+		nodeTiles = new int[nodeCount];
+		for (int tile = 0; tile < open.length; tile++) {
+			if (tileNodes[tile] != -1) {
+				nodeTiles[tileNodes[tile]] = tile;
+			}
+		}
+	}
+
+	/*
+	 * Walks every corridor leaving each node and stores it as an edge to the node at its other end.
+	 */
+	private void contractCorridors()
+	{
+		int nodeCount = nodeTiles.length;
+		edgeOffsets = new int[nodeCount + 1];
+		for (int node = 0; node < nodeCount; node++) {
+			edgeOffsets[node + 1] = edgeOffsets[node] + countOpenNeighbors(nodeTiles[node]);
+		}
+
+		int edgeCount = edgeOffsets[nodeCount];
+		edgeTargets = new int[edgeCount];
+		edgeWeights = new int[edgeCount];
+		edgeDirections = new byte[edgeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			int edge = edgeOffsets[node];
+			for (int direction = 0; direction < 4; direction++) {
+				if (getNeighbor(nodeTiles[node], direction) == -1) continue;
+
+				// Follow the corridor until it reaches another node, counting the steps taken
+				int weight = 1;
+				int previous = nodeTiles[node];
+				int tile = getNeighbor(previous, direction);
+				while (tileNodes[tile] == -1) {
+					int next = getCorridorExit(tile, previous);
+					previous = tile;
+					tile = next;
+					weight++;
+				}
+
+				edgeTargets[edge] = tileNodes[tile];
+				edgeWeights[edge] = weight;
+				edgeDirections[edge] = (byte)direction;
+				edge++;
+			}
+		}
+	}
+
+	/*
+	 * Pushes every tile of the corridor starting at the specified node tile and direction onto the path.
+	 *
+	 * @param tile the node tile the corridor starts at
+	 * @param direction the direction of the first step
+	 * @param path the path to add the corridor's tiles to
+	 * @return the node tile at the other end of the corridor
+	 */
+	private int walkCorridor(int tile, int direction, Path path)
+	{
+		int previous = tile;
+		tile = getNeighbor(tile, direction);
+		path.push(tile % width, tile / width);
+		while (tileNodes[tile] == -1) {
+			int next = getCorridorExit(tile, previous);
+			previous = tile;
+			tile = next;
+			path.push(tile % width, tile / width);
+		}
+		return tile;
+	}
+
+	// Returns the open neighbor of a corridor tile that isn't the tile it was entered from
+	private int getCorridorExit(int tile, int previous)
+	{
+		for (int direction = 0; direction < 4; direction++) {
+			int neighbor = getNeighbor(tile, direction);
+			if (neighbor != -1 && neighbor != previous) {
+				return neighbor;
+			}
+		}
+		return -1;
+	}
+
+	// Returns the node an edge leaves from. Every node has at least two edges, so the offsets never repeat.
+	private int getEdgeSource(int edge)
+	{
+		int index = Arrays.binarySearch(edgeOffsets, edge);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	// Returns the number of open tiles next to the tile
+	private int countOpenNeighbors(int tile)
+	{
+		int count = 0;
+		for (int direction = 0; direction < 4; direction++) {
+			if (getNeighbor(tile, direction) != -1) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	// Returns the tile index of the open neighbor in the specified direction, -1 if it is out of bounds or not open
+	private int getNeighbor(int tile, int direction)
+	{
+		int x = tile % width + DIRECTION_X[direction];
+		int y = tile / width + DIRECTION_Y[direction];
+		if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+		int neighbor = y * width + x;
+		return open[neighbor] ? neighbor : -1;
+	}
+
+	// Returns the index of the tile next to the tile in the specified direction, whether it is open or not
+	private int getStep(int tile, int direction)
+	{
+		return (tile / width + DIRECTION_Y[direction]) * width + tile % width + DIRECTION_X[direction];
+	}
+
+	// Converts points to tile indexes, checking that every point is a passable tile inside the maze
+	private int[] toTiles(List<Point> points)
+	{
+		int[] tiles = new int[points.size()];
+		for (int i = 0; i < tiles.length; i++) {
+			Point point = points.get(i);
+			if (point == null) throw new IllegalArgumentException("null parameter");
+			if (!maze.isPassable(point.x, point.y)) throw new IllegalArgumentException("tiles must be passable and inside the maze");
+			tiles[i] = point.y * width + point.x;
+		}
+		return tiles;
+	}
+
+	// Packs a distance and a node into one queue entry
+	private static long pack(int distance, int node)
+	{
+		return ((long)distance << 32) | node;
+	}
+}
@@ -0,0 +1,194 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.io.File;
+import java.nio.file.Files;
+import java.awt.Rectangle;
+
+import java.lang.IllegalArgumentException;
+import java.io.IOException;
+
+/**
+ * A list of tile changes that Maze.apply makes to a loaded maze in place, so a changed map doesn't have to be
+ * written out and read again.
+ * <p> Each change sets every tile of a rectangle to one tile type, a single tile is a 1 by 1 rectangle. Changes are
+ * applied in order, so a later change wins where two overlap.
+ * <p> The text format has one change per line, tiles use the same characters as maze files
+ * <p> x y tile - sets one tile
+ * <p> x y width height tile - sets every tile of a rectangle
+ * <p> Example
+ * <p> 3 4 #
+ * <p> 0 0 2 5 *
+ */
+public class MazePatch
+{
+	// Rectangle and tile type of each change
+	private int[] xs, ys, widths, heights;
+	private Maze.TileType[] types;
+	private int changeCount;
+
+	/**
+	 * Default constructor, creates a patch without any changes.
+	 */
+	public MazePatch()
+	{
+		xs = new int[4];
+		ys = new int[4];
+		widths = new int[4];
+		heights = new int[4];
+		types = new Maze.TileType[4];
+	}
+
+	/**
+	 * Reads a patch from text in the patch format.
+	 * @param text the patch's lines
+	 * @return the patch
+	 * @throws IllegalArgumentException if text is null or a line isn't a valid change
+	 */
+	public static MazePatch parse(String text)
+	{
+		if (text == null) throw new IllegalArgumentException("null parameter");
+
+		MazePatch patch = new MazePatch();
+		for (String line : text.split("\n")) {
+			line = line.trim();
+			if (line.isEmpty()) continue;
+
+			String[] fields = line.split("\\s+");
+			if ((fields.length != 3 && fields.length != 5) || fields[fields.length - 1].length() != 1) {
+				throw new IllegalArgumentException("Invalid patch line: " + line);
+			}
+			Maze.TileType type = Maze.characterToTileType(fields[fields.length - 1].charAt(0));
+			if (type == null) throw new IllegalArgumentException("Invalid patch tile: " + line);
+			try {
+				int x = Integer.parseInt(fields[0]), y = Integer.parseInt(fields[1]);
+				if (fields.length == 3) {
+					patch.setTile(x, y, type);
+				} else {
+					patch.fillRectangle(x, y, Integer.parseInt(fields[2]), Integer.parseInt(fields[3]), type);
+				}
+			} catch (NumberFormatException err) {
+				throw new IllegalArgumentException("Invalid patch line: " + line);
+			}
+		}
+		return patch;
+	}
+
+	/**
+	 * Reads a patch from a file in the patch format.
+	 * @param patchFile the file to read
+	 * @return the patch
+	 * @throws IllegalArgumentException if patchFile is null or a line isn't a valid change
+	 * @throws IOException if the file can't be read
+	 */
+	public static MazePatch read(File patchFile)
+		throws IOException
+	{
+		if (patchFile == null) throw new IllegalArgumentException("null parameter");
+		return parse(Files.readString(patchFile.toPath()));
+	}
+
+	/**
+	 * Adds a change that sets one tile.
+	 * @param x the x coordinate of the tile
+	 * @param y the y coordinate of the tile
+	 * @param type the tile's new type
+	 * @throws IllegalArgumentException if type is null
+	 */
+	public void setTile(int x, int y, Maze.TileType type)
+	{
+		fillRectangle(x, y, 1, 1, type);
+	}
+
+	/**
+	 * Adds a change that sets every tile of a rectangle.
+	 * @param x the x coordinate of the rectangle's top left tile
+	 * @param y the y coordinate of the rectangle's top left tile
+	 * @param width the number of tiles across the rectangle
+	 * @param height the number of tiles down the rectangle
+	 * @param type the new type of every tile in the rectangle
+	 * @throws IllegalArgumentException if type is null or the rectangle is empty
+	 */
+	public void fillRectangle(int x, int y, int width, int height, Maze.TileType type)
+	{
+		if (type == null) throw new IllegalArgumentException("null parameter");
+		if (width < 1 || height < 1) throw new IllegalArgumentException("rectangle must hold at least one tile");
+
+		if (changeCount == types.length) {
+			xs = Arrays.copyOf(xs, changeCount * 2);
+			ys = Arrays.copyOf(ys, changeCount * 2);
+			widths = Arrays.copyOf(widths, changeCount * 2);
+			heights = Arrays.copyOf(heights, changeCount * 2);
+			types = Arrays.copyOf(types, changeCount * 2);
+		}
+		xs[changeCount] = x;
+		ys[changeCount] = y;
+		widths[changeCount] = width;
+		heights[changeCount] = height;
+		types[changeCount] = type;
+		changeCount++;
+	}
+
+	/**
+	 * Returns the number of changes in the patch
+	 * @return change count
+	 */
+	public int getChangeCount()
+	{
+		return changeCount;
+	}
+
+	/**
+	 * Returns the tiles set by a change
+	 * @param change the index of the change
+	 * @return the change's rectangle
+	 * @throws IndexOutOfBoundsException if there is no such change
+	 */
+	public Rectangle getRegion(int change)
+	{
+		if (change < 0 || change >= changeCount) throw new IndexOutOfBoundsException("no change " + change);
+		return new Rectangle(xs[change], ys[change], widths[change], heights[change]);
+	}
+
+	/**
+	 * Returns the tile type set by a change
+	 * @param change the index of the change
+	 * @return the change's tile type
+	 * @throws IndexOutOfBoundsException if there is no such change
+	 */
+	public Maze.TileType getTileType(int change)
+	{
+		if (change < 0 || change >= changeCount) throw new IndexOutOfBoundsException("no change " + change);
+		return types[change];
+	}
+
+	/**
+	 * Returns the rectangle of every change in order
+	 * @return the regions the patch changes
+	 */
+	public List<Rectangle> getRegions()
+	{
+		List<Rectangle> regions = new ArrayList<>();
+		for (int i = 0; i < changeCount; i++) {
+			regions.add(getRegion(i));
+		}
+		return regions;
+	}
+
+	/**
+	 * Returns the patch in the patch format
+	 * @return one line for each change
+	 */
+	public String toString()
+	{
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < changeCount; i++) {
+			result.append(xs[i]).append(' ').append(ys[i]).append(' ');
+			if (widths[i] != 1 || heights[i] != 1) {
+				result.append(widths[i]).append(' ').append(heights[i]).append(' ');
+			}
+			result.append(Maze.tileTypeToCharacter(types[i])).append('\n');
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,510 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+import java.io.File;
+import java.io.InputStream;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.awt.Point;
+
+import java.lang.IllegalArgumentException;
+import java.io.IOException;
+
+/**
+ * A maze and the indexes built from it, saved to a file that can be memory-mapped so a process is ready to answer
+ * queries as soon as it starts instead of parsing the maze and rebuilding every index.
+ * <p> The snapshot holds the maze's walls one bit per tile, the ConnectedComponents labels, the DistanceField to the
+ * end and the distances from a few LandmarkHeuristic landmarks. Each part has a CRC32C checksum and the snapshot
+ * remembers the SHA-256 hash of the maze file it was built from.
+ * <p> open checks the snapshot against the maze file and its checksums, and rebuilds it if the maze file changed,
+ * the snapshot is damaged or it was written by a different version. The new snapshot is written to a temporary file
+ * and moved into place so other processes never see half of one.
+ */
+public final class MazeSnapshot
+{
+	/**
+	 * First int of a snapshot file, "MSNP" in ASCII
+	 */
+	public static final int MAGIC = 0x4D534E50;
+	/**
+	 * Version of the file format, snapshots of other versions are rebuilt
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * Number of landmarks stored in new snapshots
+	 */
+	public static final int LANDMARK_COUNT = 4;
+
+	// Sections of the file, in the order they are stored
+	private static final int GRID = 0, COMPONENTS = 1, END_DISTANCES = 2, LANDMARKS = 3, SECTION_COUNT = 4;
+	// Bytes of the source file hash
+	private static final int HASH_BYTES = 32;
+	// Where the section table starts, after ten ints and the source hash
+	private static final int SECTION_TABLE = 40 + HASH_BYTES;
+	// Size of the header, the section table is an offset, length and checksum for each section followed by
+	// the header's own checksum
+	private static final int HEADER_BYTES = SECTION_TABLE + SECTION_COUNT * 3 * Long.BYTES + Long.BYTES;
+	// Largest number of bytes mapped in one chunk
+	private static final int CHUNK_BITS = 30;
+
+	private final int width, height;
+	private final int wordsPerRow;
+	private final Point start, end;
+	private final int componentCount;
+	private final int landmarkCount;
+	private final long[] sectionOffsets;
+	private final ByteBuffer[] chunks;
+	private final boolean rebuilt;
+
+	/**
+	 * Maps the snapshot of a maze file, building or rebuilding it first if it doesn't match the maze file.
+	 *
+	 * @param mazeFile the text maze the snapshot is of
+	 * @param snapshotFile the snapshot, created if it doesn't exist
+	 * @return the mapped snapshot
+	 * @throws IllegalArgumentException if a parameter is null or the maze file isn't a valid maze
+	 * @throws IOException if a file can't be read or written
+	 */
+	public static MazeSnapshot open(File mazeFile, File snapshotFile)
+		throws IOException
+	{
+		if (mazeFile == null || snapshotFile == null) throw new IllegalArgumentException("null parameter");
+
+		byte[] sourceHash = hash(mazeFile);
+		if (snapshotFile.isFile()) {
+			MazeSnapshot snapshot = map(snapshotFile, false);
+			if (snapshot != null && snapshot.isValid(sourceHash)) return snapshot;
+		}
+
+		write(new Maze(mazeFile), sourceHash, snapshotFile);
+		MazeSnapshot snapshot = map(snapshotFile, true);
+		if (snapshot == null || !snapshot.isValid(sourceHash)) throw new IOException("Snapshot could not be written");
+		return snapshot;
+	}
+
+	// Maps the file, returns null if it is too short or not a snapshot of this version
+	private static MazeSnapshot map(File file, boolean rebuilt)
+		throws IOException
+	{
+		try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			if (size < HEADER_BYTES) return null;
+
+			// The mapping stays valid after the channel is closed
+			ByteBuffer[] chunks = new ByteBuffer[(int)((size + (1L << CHUNK_BITS) - 1) >>> CHUNK_BITS)];
+			for (int i = 0; i < chunks.length; i++) {
+				long offset = (long)i << CHUNK_BITS;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(1L << CHUNK_BITS, size - offset));
+			}
+			if (chunks[0].getInt(0) != MAGIC || chunks[0].getInt(4) != VERSION) return null;
+			return new MazeSnapshot(chunks, rebuilt);
+		}
+	}
+
+	// Reads the header of a mapped snapshot
+	private MazeSnapshot(ByteBuffer[] chunks, boolean rebuilt)
+	{
+		this.chunks = chunks;
+		this.rebuilt = rebuilt;
+		width = getInt(8);
+		height = getInt(12);
+		wordsPerRow = (width + 63) >>> 6;
+		start = new Point(getInt(16), getInt(20));
+		end = new Point(getInt(24), getInt(28));
+		componentCount = getInt(32);
+		landmarkCount = getInt(36);
+		sectionOffsets = new long[SECTION_COUNT];
+		for (int section = 0; section < SECTION_COUNT; section++) {
+			sectionOffsets[section] = getLong(SECTION_TABLE + section * 3L * Long.BYTES);
+		}
+	}
+
+	/*
+	 * Returns whether the snapshot was built from a maze file with the specified hash and every checksum matches.
+	 */
+	private boolean isValid(byte[] sourceHash)
+	{
+		long headerChecksum = checksum(0, HEADER_BYTES - Long.BYTES);
+		if (headerChecksum != getLong(HEADER_BYTES - Long.BYTES)) return false;
+
+		for (int i = 0; i < HASH_BYTES; i++) {
+			if (chunks[0].get(40 + i) != sourceHash[i]) return false;
+		}
+
+		long size = 0;
+		for (ByteBuffer chunk : chunks) {
+			size += chunk.capacity();
+		}
+		for (int section = 0; section < SECTION_COUNT; section++) {
+			long offset = getLong(SECTION_TABLE + section * 3L * Long.BYTES);
+			long length = getLong(SECTION_TABLE + section * 3L * Long.BYTES + Long.BYTES);
+			long expected = getLong(SECTION_TABLE + section * 3L * Long.BYTES + 2 * Long.BYTES);
+			if (offset < HEADER_BYTES || length < 0 || offset + length > size) return false;
+			if (checksum(offset, length) != expected) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether open had to build the snapshot because it was missing or didn't match the maze file
+	 * @return true if the snapshot was rebuilt
+	 */
+	public boolean isRebuilt()
+	{
+		return rebuilt;
+	}
+
+	/**
+	 * Returns the maze stored in the snapshot, read directly from the mapped file
+	 * @return the maze as a Grid
+	 */
+	public Grid getGrid()
+	{
+		return new SnapshotGrid();
+	}
+
+	/**
+	 * Returns the component of the tile at the specified position, the same as ConnectedComponents.getComponent
+	 * @param x the x coordinate of the tile
+	 * @param y the y coordinate of the tile
+	 * @return the component label, -1 if the tile is a wall or out of bounds
+	 */
+	public int getComponent(int x, int y)
+	{
+		if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+		return getInt(sectionOffsets[COMPONENTS] + ((long)y * width + x) * Integer.BYTES);
+	}
+
+	/**
+	 * Returns the number of components in the maze
+	 * @return component count
+	 */
+	public int getComponentCount()
+	{
+		return componentCount;
+	}
+
+	/**
+	 * Returns whether there is a path between the two tiles
+	 * @param a the first tile
+	 * @param b the second tile
+	 * @return true if both tiles are passable and in the same component
+	 * @throws IllegalArgumentException if a parameter is null
+	 */
+	public boolean isConnected(Point a, Point b)
+	{
+		if (a == null || b == null) throw new IllegalArgumentException("null parameter");
+		int component = getComponent(a.x, a.y);
+		return component != -1 && component == getComponent(b.x, b.y);
+	}
+
+	/**
+	 * Returns the number of moves needed to walk from the tile to the maze's end
+	 * @param x the x coordinate of the tile
+	 * @param y the y coordinate of the tile
+	 * @return the distance, -1 if the end can't be reached from the tile or the tile is out of bounds
+	 */
+	public int getDistanceToEnd(int x, int y)
+	{
+		if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+		return getInt(sectionOffsets[END_DISTANCES] + ((long)y * width + x) * Integer.BYTES);
+	}
+
+	/**
+	 * Returns the landmark tiles stored in the snapshot
+	 * @return the landmarks
+	 */
+	public List<Point> getLandmarks()
+	{
+		List<Point> landmarks = new ArrayList<>();
+		for (int landmark = 0; landmark < landmarkCount; landmark++) {
+			long offset = sectionOffsets[LANDMARKS] + landmark * 2L * Integer.BYTES;
+			landmarks.add(new Point(getInt(offset), getInt(offset + Integer.BYTES)));
+		}
+		return landmarks;
+	}
+
+	/**
+	 * Returns a heuristic that estimates distances with the stored landmarks the same way LandmarkHeuristic does
+	 * @return landmark heuristic
+	 */
+	public AstarPathfinding.Heuristic getLandmarkHeuristic()
+	{
+		return (x, y, endX, endY) -> {
+			int estimate = 0;
+			for (int landmark = 0; landmark < landmarkCount; landmark++) {
+				int tileDistance = getLandmarkDistance(landmark, x, y);
+				int endDistance = getLandmarkDistance(landmark, endX, endY);
+				if (tileDistance == -1 || endDistance == -1) continue;
+				estimate = Math.max(estimate, Math.abs(tileDistance - endDistance));
+			}
+			return estimate;
+		};
+	}
+
+	// Returns the distance from the landmark to the tile, -1 if it can't be reached or is out of bounds
+	private int getLandmarkDistance(int landmark, int x, int y)
+	{
+		if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+		long tiles = (long)width * height;
+		long offset = sectionOffsets[LANDMARKS] + landmarkCount * 2L * Integer.BYTES;
+		return getInt(offset + (landmark * tiles + (long)y * width + x) * Integer.BYTES);
+	}
+
+	/*
+	 * Builds every index of the maze and writes the snapshot through a temporary file.
+	 *
+	 * @param maze the parsed maze
+	 * @param sourceHash the hash of the maze file
+	 * @param file the snapshot file to replace
+	 */
+	private static void write(Maze maze, byte[] sourceHash, File file)
+		throws IOException
+	{
+		int width = maze.getWidth(), height = maze.getHeight();
+		ConnectedComponents components = new ConnectedComponents(maze);
+		DistanceField endDistances = new DistanceField(maze, maze.getEnd());
+		List<Point> landmarks = new LandmarkHeuristic(maze, LANDMARK_COUNT).getLandmarks();
+
+		File directory = file.getAbsoluteFile().getParentFile();
+		File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+		try {
+			try (RandomAccessFile output = new RandomAccessFile(temporary, "rw")) {
+				FileChannel channel = output.getChannel();
+				long[] offsets = new long[SECTION_COUNT];
+				long[] lengths = new long[SECTION_COUNT];
+				long[] checksums = new long[SECTION_COUNT];
+
+				SectionWriter section = new SectionWriter(channel, HEADER_BYTES);
+				long[] words = new long[(width + 63) >>> 6];
+				for (int y = 0; y < height; y++) {
+					Arrays.fill(words, 0);
+					for (int x = 0; x < width; x++) {
+						if (!maze.isPassable(x, y)) words[x >>> 6] |= 1L << x;
+					}
+					for (long word : words) {
+						section.putLong(word);
+					}
+				}
+				section = finishSection(section, GRID, offsets, lengths, checksums);
+
+				for (int y = 0; y < height; y++) {
+					for (int x = 0; x < width; x++) {
+						section.putInt(components.getComponent(x, y));
+					}
+				}
+				section = finishSection(section, COMPONENTS, offsets, lengths, checksums);
+
+				for (int y = 0; y < height; y++) {
+					for (int x = 0; x < width; x++) {
+						section.putInt(endDistances.getDistance(x, y));
+					}
+				}
+				section = finishSection(section, END_DISTANCES, offsets, lengths, checksums);
+
+				for (Point landmark : landmarks) {
+					section.putInt(landmark.x);
+					section.putInt(landmark.y);
+				}
+				for (Point landmark : landmarks) {
+					DistanceField distances = new DistanceField(maze, landmark);
+					for (int y = 0; y < height; y++) {
+						for (int x = 0; x < width; x++) {
+							section.putInt(distances.getDistance(x, y));
+						}
+					}
+				}
+				finishSection(section, LANDMARKS, offsets, lengths, checksums);
+
+				// The header is written last with the checksums of every section
+				SectionWriter header = new SectionWriter(channel, 0);
+				int[] fields = {MAGIC, VERSION, width, height, maze.getStart().x, maze.getStart().y,
+					maze.getEnd().x, maze.getEnd().y, components.getComponentCount(), landmarks.size()};
+				for (int field : fields) {
+					header.putInt(field);
+				}
+				for (byte value : sourceHash) {
+					header.putByte(value);
+				}
+				for (int i = 0; i < SECTION_COUNT; i++) {
+					header.putLong(offsets[i]);
+					header.putLong(lengths[i]);
+					header.putLong(checksums[i]);
+				}
+				header.putLong(header.finish());
+				header.finish();
+				channel.force(true);
+			}
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temporary.delete();
+		}
+	}
+
+	// Records a finished section and starts the next one at the following multiple of 8 bytes
+	private static SectionWriter finishSection(SectionWriter section, int index, long[] offsets, long[] lengths, long[] checksums)
+		throws IOException
+	{
+		offsets[index] = section.start;
+		checksums[index] = section.finish();
+		lengths[index] = section.position - section.start;
+		long next = (section.position + Long.BYTES - 1) & -Long.BYTES;
+		return new SectionWriter(section.channel, next);
+	}
+
+	// Returns the SHA-256 hash of the file's contents
+	private static byte[] hash(File file)
+		throws IOException
+	{
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException err) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(err);
+		}
+
+		try (InputStream input = new FileInputStream(file)) {
+			byte[] buffer = new byte[1 << 16];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return digest.digest();
+	}
+
+	// Returns the CRC32C checksum of a range of the file
+	private long checksum(long offset, long length)
+	{
+		CRC32C crc = new CRC32C();
+		long end = offset + length;
+		while (offset < end) {
+			ByteBuffer chunk = chunks[(int)(offset >>> CHUNK_BITS)].duplicate();
+			int position = (int)(offset & ((1L << CHUNK_BITS) - 1));
+			int limit = (int)Math.min(chunk.capacity(), position + (end - offset));
+			chunk.position(position).limit(limit);
+			crc.update(chunk);
+			offset += limit - position;
+		}
+		return crc.getValue();
+	}
+
+	// Reads an int at the offset from the start of the file, values never cross chunks since chunks are aligned
+	private int getInt(long offset)
+	{
+		return chunks[(int)(offset >>> CHUNK_BITS)].getInt((int)(offset & ((1L << CHUNK_BITS) - 1)));
+	}
+
+	// Reads a long at the offset from the start of the file
+	private long getLong(long offset)
+	{
+		return chunks[(int)(offset >>> CHUNK_BITS)].getLong((int)(offset & ((1L << CHUNK_BITS) - 1)));
+	}
+
+	/*
+	 * Writes values one after another from a position of the file while keeping a checksum of them.
+	 */
+	private static class SectionWriter
+	{
+		private FileChannel channel;
+		private ByteBuffer buffer;
+		private CRC32C crc;
+		private long start, position;
+
+		SectionWriter(FileChannel channel, long start)
+		{
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocate(1 << 16);
+			this.crc = new CRC32C();
+			this.start = start;
+			this.position = start;
+		}
+
+		void putByte(byte value)
+			throws IOException
+		{
+			if (buffer.remaining() < Byte.BYTES) flush();
+			buffer.put(value);
+		}
+
+		void putInt(int value)
+			throws IOException
+		{
+			if (buffer.remaining() < Integer.BYTES) flush();
+			buffer.putInt(value);
+		}
+
+		void putLong(long value)
+			throws IOException
+		{
+			if (buffer.remaining() < Long.BYTES) flush();
+			buffer.putLong(value);
+		}
+
+		// Writes everything buffered and returns the checksum of everything written so far
+		long finish()
+			throws IOException
+		{
+			flush();
+			return crc.getValue();
+		}
+
+		private void flush()
+			throws IOException
+		{
+			buffer.flip();
+			crc.update(buffer.duplicate());
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+			buffer.clear();
+		}
+	}
+
+	/*
+	 * A Grid over the walls section of the mapped file.
+	 */
+	private class SnapshotGrid implements Grid
+	{
+		@Override
+		public int getWidth()
+		{
+			return width;
+		}
+
+		@Override
+		public int getHeight()
+		{
+			return height;
+		}
+
+		@Override
+		public boolean isPassable(int x, int y)
+		{
+			if (x < 0 || y < 0 || x >= width || y >= height) return false;
+			long word = getLong(sectionOffsets[GRID] + ((long)y * wordsPerRow + (x >>> 6)) * Long.BYTES);
+			return (word & (1L << x)) == 0;
+		}
+
+		@Override
+		public Point getStart()
+		{
+			return new Point(start);
+		}
+
+		@Override
+		public Point getEnd()
+		{
+			return new Point(end);
+		}
+	}
+}
@@ -0,0 +1,691 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+
+import java.util.*;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.lang.management.ManagementFactory;
+import java.util.function.*;
+
+/**
+ * Checks that every pathfinding engine returns valid shortest paths on thousands of generated mazes,
+ * stays within an allocation budget and doesn't slow down faster than the maze grows.
+ * <p> Path lengths are compared against a plain breadth first search which is simple enough to trust.
+ */
+public class OptimalityTester
+{
+	// Number of random mazes each engine is checked against
+	private static final int RANDOM_MAZE_COUNT = 2000;
+	// Largest width and height of the random mazes
+	private static final int RANDOM_MAZE_SIZE = 40;
+	// Sizes of the square mazes used for the scaling checks
+	private static final int[] SCALING_SIZES = {64, 128, 256, 512};
+	// Largest time a search of the largest scaling maze may take compared to the smallest one that is still timed,
+	// four times the ratio of their tiles
+	private static final double TIME_SCALING_LIMIT = 4.0 * SCALING_SIZES[3] * SCALING_SIZES[3] / (SCALING_SIZES[1] * SCALING_SIZES[1]);
+	// Number of timed runs of each search, the fastest one counts
+	private static final int TIMED_RUNS = 3;
+	// Byte limit of LowMemoryPathfinding, less than the nine bytes per tile an A* search of the larger mazes needs
+	private static final long LOW_MEMORY_BYTE_LIMIT = 64 * 1024;
+
+	private Map<String, Function<Maze, Path>> engines;
+	// Allocation budget per tile of a maze of each engine for the scaling checks
+	private Map<String, Long> bytesPerTile;
+	private File mazeFile;
+	// Number of tiles explored by the last call to findPath
+	private int lastExpanded;
+
+	@BeforeEach
+	void reset()
+		throws IOException
+	{
+		// Every engine that finds a path from a maze's start to its end. New engines should be added here.
+		engines = new LinkedHashMap<>();
+		engines.put("AstarPathfinding", AstarPathfinding::findPath);
+		engines.put("AstarPathfinding on BitsetGrid", maze -> AstarPathfinding.findPath(new BitsetGrid(maze)));
+		engines.put("BitboardPathfinding", BitboardPathfinding::findPath);
+		engines.put("BitboardPathfinding on BitsetGrid", maze -> BitboardPathfinding.findPath(new BitsetGrid(maze)));
+		engines.put("LowMemoryPathfinding", maze -> new LowMemoryPathfinding(LOW_MEMORY_BYTE_LIMIT).findPath(maze));
+		engines.put("MazeGraph", maze -> new MazeGraph(maze).findPath());
+		engines.put("CooperativePathfinding", maze -> new CooperativePathfinding(maze).findPaths(List.of(maze.getStart()), List.of(maze.getEnd())).get(0));
+
+		// A* keeps an int and a byte per tile, bitboards keep several bit layers per tile. MazeGraph and
+		// CooperativePathfinding also build a graph or labels and distance fields of the whole maze for every search.
+		bytesPerTile = new HashMap<>();
+		bytesPerTile.put("AstarPathfinding", 16L);
+		bytesPerTile.put("AstarPathfinding on BitsetGrid", 16L);
+		bytesPerTile.put("BitboardPathfinding", 32L);
+		bytesPerTile.put("BitboardPathfinding on BitsetGrid", 32L);
+		bytesPerTile.put("LowMemoryPathfinding", 16L);
+		bytesPerTile.put("MazeGraph", 64L);
+		bytesPerTile.put("CooperativePathfinding", 64L);
+
+		mazeFile = File.createTempFile("optimality", ".txt");
+	}
+
+	@AfterEach
+	void cleanUp()
+	{
+		mazeFile.delete();
+	}
+
+	@Test
+	void testFailedMaze()
+		throws FileNotFoundException
+	{
+		// AstarPathfinding used to return a path around the far side of the wall for this maze
+		Maze failedMaze = new Maze(new File("failedMaze.txt"));
+		checkEngines(failedMaze, "failedMaze.txt");
+		assertEquals(14, AstarPathfinding.findPath(failedMaze).size(), "failedMaze.txt shortest path has 14 tiles");
+	}
+
+	@Test
+	void testExampleMazes()
+		throws FileNotFoundException
+	{
+		for (int i = 1; i <= 5; i++) {
+			checkEngines(new Maze(new File("exampleMazes/validMaze" + i + ".txt")), "validMaze" + i);
+		}
+		checkEngines(new Maze(new File("exampleMazes/impossibleMaze.txt")), "impossibleMaze");
+	}
+
+	@Test
+	void testRandomMazes()
+		throws IOException
+	{
+		Random random = new Random(2024);
+		MazeGenerator.Topology[] topologies = MazeGenerator.Topology.values();
+		for (int i = 0; i < RANDOM_MAZE_COUNT; i++) {
+			MazeGenerator.Topology topology = topologies[i % topologies.length];
+			int width = 5 + random.nextInt(RANDOM_MAZE_SIZE - 4);
+			int height = 5 + random.nextInt(RANDOM_MAZE_SIZE - 4);
+			long seed = random.nextLong();
+			MazeGenerator generator = new MazeGenerator(topology, width, height, seed);
+			generator.setDensity(0.1 + random.nextDouble() * 0.4);
+			generator.write(mazeFile, MazeGenerator.Format.TEXT);
+
+			Maze maze = new Maze(mazeFile);
+			checkEngines(maze, topology + " " + width + "x" + height + " seed " + seed);
+			assertEquals(findShortestLength(maze) != -1, BitboardPathfinding.isReachable(maze), "reachability of " + topology + " seed " + seed);
+		}
+	}
+
+	@Test
+	void testScaling()
+		throws IOException
+	{
+		MazeGenerator.Topology[] topologies = {MazeGenerator.Topology.PRIM, MazeGenerator.Topology.CAVES, MazeGenerator.Topology.RANDOM_OBSTACLES};
+		// Nanoseconds each engine took on every topology of each size
+		Map<String, long[]> times = new HashMap<>();
+		for (int sizeIndex = 0; sizeIndex < SCALING_SIZES.length; sizeIndex++) {
+			int size = SCALING_SIZES[sizeIndex];
+			for (MazeGenerator.Topology topology : topologies) {
+				Maze maze = generateMaze(topology, size, size, size);
+				String name = topology + " " + size + "x" + size;
+				checkEngines(maze, name);
+
+				long tiles = (long)size * size;
+				for (Map.Entry<String, Function<Maze, Path>> engine : engines.entrySet()) {
+					// Run once first so the budget doesn't include class loading
+					engine.getValue().apply(maze);
+
+					long allocatedBefore = getAllocatedBytes();
+					engine.getValue().apply(maze);
+					long allocated = getAllocatedBytes() - allocatedBefore;
+
+					if (allocatedBefore >= 0) {
+						long budget = tiles * bytesPerTile.get(engine.getKey());
+						assertTrue(allocated <= budget, engine.getKey() + " allocated " + allocated + " of " + budget + " bytes on " + name);
+					}
+
+					long fastest = Long.MAX_VALUE;
+					for (int run = 0; run < TIMED_RUNS; run++) {
+						long startTime = System.nanoTime();
+						engine.getValue().apply(maze);
+						fastest = Math.min(fastest, System.nanoTime() - startTime);
+					}
+					times.computeIfAbsent(engine.getKey(), key -> new long[SCALING_SIZES.length])[sizeIndex] += fastest;
+				}
+			}
+		}
+
+		// The smallest size is mostly warm-up, so the largest one is compared with the next
+		for (Map.Entry<String, long[]> engine : times.entrySet()) {
+			long[] engineTimes = engine.getValue();
+			double ratio = (double)engineTimes[3] / Math.max(engineTimes[1], 1);
+			assertTrue(ratio <= TIME_SCALING_LIMIT, engine.getKey() + " took " + ratio + " times as long on " + SCALING_SIZES[3] + "x" + SCALING_SIZES[3] + " mazes as on " + SCALING_SIZES[1] + "x" + SCALING_SIZES[1]);
+		}
+	}
+
+	@Test
+	void testLowMemory()
+		throws IOException
+	{
+		MazeGenerator.Topology[] topologies = {MazeGenerator.Topology.PRIM, MazeGenerator.Topology.CAVES, MazeGenerator.Topology.RANDOM_OBSTACLES};
+		for (int size : SCALING_SIZES) {
+			for (MazeGenerator.Topology topology : topologies) {
+				Maze maze = generateMaze(topology, size, size, size);
+				String name = topology + " " + size + "x" + size;
+
+				LowMemoryPathfinding pathfinder = new LowMemoryPathfinding(LOW_MEMORY_BYTE_LIMIT);
+				Path path = pathfinder.findPath(maze);
+				int shortest = findShortestLength(maze);
+				assertEquals(shortest, path == null ? -1 : path.size(), "LowMemoryPathfinding on " + name + " should find a shortest path");
+				assertTrue(pathfinder.getPeakMemoryUsage() > 0, "memory usage should be reported on " + name);
+				assertTrue(pathfinder.getPeakMemoryUsage() <= LOW_MEMORY_BYTE_LIMIT, "LowMemoryPathfinding used " + pathfinder.getPeakMemoryUsage() + " bytes on " + name);
+			}
+		}
+	}
+
+	@Test
+	void testHeuristics(TestReporter reporter)
+		throws IOException
+	{
+		// Mazes of every kind plus an empty room, where every tile towards the end has the same f value
+		List<Maze> mazes = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		for (MazeGenerator.Topology topology : MazeGenerator.Topology.values()) {
+			mazes.add(generateMaze(topology, 96, 96, 11));
+			names.add(topology.toString());
+		}
+		MazeGenerator room = new MazeGenerator(MazeGenerator.Topology.RANDOM_OBSTACLES, 96, 96, 11);
+		room.setDensity(0);
+		room.write(mazeFile, MazeGenerator.Format.TEXT);
+		Maze openRoom = new Maze(mazeFile);
+		mazes.add(openRoom);
+		names.add("open room");
+
+		Map<String, Function<Maze, AstarPathfinding.Heuristic>> heuristics = new LinkedHashMap<>();
+		heuristics.put("Manhattan", maze -> AstarPathfinding.Heuristic.MANHATTAN);
+		heuristics.put("Chebyshev", maze -> AstarPathfinding.Heuristic.CHEBYSHEV);
+		heuristics.put("Octile", maze -> AstarPathfinding.Heuristic.OCTILE);
+		heuristics.put("Landmark", maze -> new LandmarkHeuristic(maze, 4));
+		heuristics.put("Weighted", maze -> AstarPathfinding.Heuristic.weighted(AstarPathfinding.Heuristic.MANHATTAN, 150));
+
+		// Reports the tiles each combination explores over all of the mazes
+		for (Map.Entry<String, Function<Maze, AstarPathfinding.Heuristic>> heuristic : heuristics.entrySet()) {
+			for (AstarPathfinding.TieBreaking tieBreaking : AstarPathfinding.TieBreaking.values()) {
+				long total = 0;
+				for (int i = 0; i < mazes.size(); i++) {
+					Maze maze = mazes.get(i);
+					String message = heuristic.getKey() + " " + tieBreaking + " on " + names.get(i);
+					Path path = findPath(maze, heuristic.getValue().apply(maze), tieBreaking);
+					total += lastExpanded;
+
+					int shortest = findShortestLength(maze);
+					if (shortest == -1) {
+						assertNull(path, message + " should find no path");
+						continue;
+					}
+					assertValidPath(maze, path, message);
+					if (heuristic.getKey().equals("Weighted")) {
+						assertTrue(path.size() - 1 <= (shortest - 1) * 3 / 2, message + " should be within its weight of the shortest path");
+					} else {
+						assertEquals(shortest, path.size(), message + " should find a shortest path");
+					}
+				}
+				reporter.publishEntry(heuristic.getKey() + " " + tieBreaking, total + " tiles explored");
+			}
+		}
+
+		// Preferring higher g walks straight across the plateau instead of exploring all of it
+		findPath(openRoom, AstarPathfinding.Heuristic.MANHATTAN, AstarPathfinding.TieBreaking.TILE_INDEX);
+		long plateau = lastExpanded;
+		findPath(openRoom, AstarPathfinding.Heuristic.MANHATTAN, AstarPathfinding.TieBreaking.HIGHER_G);
+		assertTrue(lastExpanded * 10 < plateau, "higher g tie breaking explored " + lastExpanded + " of " + plateau + " tiles");
+	}
+
+	@Test
+	void testMazeGraphQueries()
+		throws IOException
+	{
+		// One graph per maze answers many queries between random tiles, whether they are in dead ends, corridors or junctions
+		Random random = new Random(26);
+		MazeGenerator.Topology[] topologies = MazeGenerator.Topology.values();
+		for (int i = 0; i < 60; i++) {
+			MazeGenerator.Topology topology = topologies[i % topologies.length];
+			Maze maze = generateMaze(topology, 40, 40, random.nextLong());
+			MazeGraph graph = new MazeGraph(maze);
+			List<Point> open = getOpenTiles(maze);
+			for (int query = 0; query < 50; query++) {
+				Point from = open.get(random.nextInt(open.size()));
+				Point to = open.get(random.nextInt(open.size()));
+				assertShortestPath(maze, from, to, graph.findPath(from, to), topology + " maze " + i + " from " + from + " to " + to);
+			}
+		}
+	}
+
+	@Test
+	void testCompressedPathDatabase()
+		throws IOException
+	{
+		File databaseFile = File.createTempFile("optimality", ".cpd");
+		try {
+			Random random = new Random(35);
+			MazeGenerator.Topology[] topologies = MazeGenerator.Topology.values();
+			for (int i = 0; i < 30; i++) {
+				MazeGenerator.Topology topology = topologies[i % topologies.length];
+				Maze maze = generateMaze(topology, 48, 48, random.nextLong());
+				CompressedPathDatabase.build(maze, databaseFile);
+				CompressedPathDatabase database = new CompressedPathDatabase(databaseFile);
+
+				// Random pairs of open tiles, checked against the distance field of the target
+				List<Point> open = getOpenTiles(maze);
+				for (int query = 0; query < 50; query++) {
+					Point from = open.get(random.nextInt(open.size()));
+					Point to = open.get(random.nextInt(open.size()));
+					assertShortestPath(maze, from, to, database.findPath(from, to), topology + " maze " + i + " from " + from + " to " + to);
+				}
+				checkEngines(maze, topology + " maze " + i);
+				assertEquals(findShortestLength(maze), database.findPath() == null ? -1 : database.findPath().size(), "database path of " + topology + " maze " + i);
+			}
+		} finally {
+			databaseFile.delete();
+		}
+	}
+
+	@Test
+	void testShardedPathfinding()
+		throws IOException
+	{
+		// Each layout starts its own workers, so a few mazes are checked with many queries each
+		Random random = new Random(38);
+		int[][] layouts = {{2, 2}, {3, 2}, {1, 4}, {4, 4}};
+		MazeGenerator.Topology[] topologies = MazeGenerator.Topology.values();
+		for (int i = 0; i < layouts.length; i++) {
+			MazeGenerator.Topology topology = topologies[i % topologies.length];
+			Maze maze = generateMaze(topology, 45, 37, random.nextLong());
+			String name = topology + " maze in " + layouts[i][0] + "x" + layouts[i][1] + " shards";
+			try (ShardedPathfinding pathfinding = ShardedPathfinding.launch(maze, layouts[i][0], layouts[i][1])) {
+				Path path = pathfinding.findPath();
+				assertEquals(findShortestLength(maze), path == null ? -1 : path.size(), name + " should find a shortest path");
+				if (path != null) assertValidPath(maze, path, name);
+
+				List<Point> open = getOpenTiles(maze);
+				for (int query = 0; query < 40; query++) {
+					Point from = open.get(random.nextInt(open.size()));
+					Point to = open.get(random.nextInt(open.size()));
+					assertShortestPath(maze, from, to, pathfinding.findPath(from, to), name + " from " + from + " to " + to);
+				}
+			}
+		}
+	}
+
+	@Test
+	void testMazePatches()
+		throws IOException
+	{
+		// Random patches are applied to each maze, and every repaired or kept result is checked against a fresh one
+		Random random = new Random(39);
+		for (int i = 0; i < 20; i++) {
+			MazeGenerator.Topology topology = i % 2 == 0 ? MazeGenerator.Topology.CAVES : MazeGenerator.Topology.PRIM;
+			Maze maze = generateMaze(topology, 40, 40, random.nextLong());
+			ConnectedComponents components = new ConnectedComponents(maze);
+			DistanceField toEnd = new DistanceField(maze, maze.getEnd());
+			PathCache cache = new PathCache(maze, 64);
+			List<Point> queries = new ArrayList<>();
+			for (int query = 0; query < 20; query++) {
+				queries.add(new Point(random.nextInt(40), random.nextInt(40)));
+			}
+
+			for (int round = 0; round < 30; round++) {
+				String name = topology + " maze " + i + " round " + round;
+				MazePatch patch = new MazePatch();
+				for (int change = random.nextInt(4) + 1; change > 0; change--) {
+					Maze.TileType type = random.nextBoolean() ? Maze.TileType.WALL : Maze.TileType.EMPTY;
+					int x = random.nextInt(38) + 1, y = random.nextInt(38) + 1;
+					if (random.nextInt(5) == 0) patch.fillRectangle(x, y, random.nextInt(40 - x) + 1, random.nextInt(40 - y) + 1, type);
+					else patch.setTile(x, y, type);
+				}
+				try {
+					maze.apply(patch);
+				} catch (IllegalArgumentException err) {
+					continue;
+				}
+
+				List<Rectangle> regions = patch.getRegions();
+				components.update(maze, regions);
+				ConnectedComponents fresh = new ConnectedComponents(maze);
+				assertEquals(fresh.getComponentCount(), components.getComponentCount(), name + " component count");
+				// Labels may differ, but each repaired label must match exactly one fresh label
+				Map<Integer, Integer> freshLabels = new HashMap<>(), repairedLabels = new HashMap<>();
+				for (int y = 0; y < maze.getHeight(); y++) {
+					for (int x = 0; x < maze.getWidth(); x++) {
+						int label = components.getComponent(x, y), freshLabel = fresh.getComponent(x, y);
+						assertEquals(freshLabel == -1, label == -1, name + " wall at " + x + "," + y);
+						if (label == -1) continue;
+						freshLabels.putIfAbsent(label, freshLabel);
+						repairedLabels.putIfAbsent(freshLabel, label);
+						assertEquals(freshLabel, (int)freshLabels.get(label), name + " component at " + x + "," + y);
+						assertEquals(label, (int)repairedLabels.get(freshLabel), name + " component at " + x + "," + y);
+					}
+				}
+
+				if (!maze.isPassable(toEnd.getTarget().x, toEnd.getTarget().y) || toEnd.isChangedBy(maze, regions)) {
+					toEnd = new DistanceField(maze, maze.getEnd());
+				} else {
+					DistanceField freshField = new DistanceField(maze, toEnd.getTarget());
+					for (int y = 0; y < maze.getHeight(); y++) {
+						for (int x = 0; x < maze.getWidth(); x++) {
+							assertEquals(freshField.getDistance(x, y), toEnd.getDistance(x, y), name + " kept distance at " + x + "," + y);
+						}
+					}
+				}
+
+				for (int query = 0; query + 1 < queries.size(); query++) {
+					Point from = queries.get(query), to = queries.get(query + 1);
+					assertShortestPath(maze, from, to, cache.findPath(from, to), name + " cached path from " + from + " to " + to);
+				}
+			}
+			assertTrue(cache.getHitCount() > 0, topology + " maze " + i + " should keep some paths between patches");
+		}
+	}
+
+	@Test
+	void testPathCursor()
+		throws IOException
+	{
+		// Cursors stream the same tiles as the Path found by the same search
+		Random random = new Random(40);
+		MazeGenerator.Topology[] topologies = MazeGenerator.Topology.values();
+		for (int i = 0; i < 20; i++) {
+			MazeGenerator.Topology topology = topologies[i % topologies.length];
+			Maze maze = generateMaze(topology, 60, 60, random.nextLong());
+			Path path = AstarPathfinding.findPath(maze);
+			try (PathCursor cursor = AstarPathfinding.findPathCursor(maze)) {
+				if (path == null) {
+					assertNull(cursor, topology + " maze " + i + " should have no cursor");
+					continue;
+				}
+				assertEquals(maze.toString(path), maze.toString(cursor), topology + " maze " + i + " cursor");
+			}
+		}
+
+		// A serpentine maze whose route visits half of its tiles
+		int size = 1001;
+		StringBuilder text = new StringBuilder();
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				boolean gap = (y / 2) % 2 == 0 ? x == size - 1 : x == 0;
+				if (x == 0 && y == 0) text.append('1');
+				else if (x == size - 1 && y == size - 1) text.append('2');
+				else text.append(y % 2 == 0 || gap ? '*' : '#');
+			}
+			text.append('\n');
+		}
+		try (Writer writer = new FileWriter(mazeFile)) {
+			writer.write(text.toString());
+		}
+		Maze maze = new Maze(mazeFile);
+		long tiles = (long)size * size;
+
+		// Run once first so the measurements don't include class loading and compiling
+		AstarPathfinding.findPath(maze);
+		AstarPathfinding.findPathCursor(maze).close();
+
+		long allocatedBefore = getAllocatedBytes();
+		Path path = AstarPathfinding.findPath(maze);
+		long pathAllocated = getAllocatedBytes() - allocatedBefore;
+		allocatedBefore = getAllocatedBytes();
+		long written;
+		try (PathCursor cursor = AstarPathfinding.findPathCursor(maze)) {
+			written = cursor.writeTo(Channels.newChannel(OutputStream.nullOutputStream()));
+		}
+		long cursorAllocated = getAllocatedBytes() - allocatedBefore;
+
+		assertEquals(path.size(), written, "cursor should write every tile of the route");
+		if (allocatedBefore >= 0) {
+			// The search needs a g value, a parent and a calculated flag for every tile, a little over 9 bytes
+			assertTrue(cursorAllocated <= tiles * 10, "cursor allocated " + cursorAllocated + " bytes");
+			assertTrue(cursorAllocated * 2 < pathAllocated, "cursor allocated " + cursorAllocated + " bytes, Path " + pathAllocated);
+		}
+	}
+
+	@Test
+	void testMultipleGoals()
+		throws IOException
+	{
+		Random random = new Random(37);
+		for (int i = 0; i < 100; i++) {
+			MazeGenerator.Topology topology = i % 2 == 0 ? MazeGenerator.Topology.CAVES : MazeGenerator.Topology.RANDOM_OBSTACLES;
+			Maze maze = generateMaze(topology, 40, 40, random.nextLong());
+
+			List<Point> open = getOpenTiles(maze);
+			Collections.shuffle(open, random);
+			// Some searches have more goals than the estimate is worked out for
+			int goalCount = i % 5 == 0 ? 100 : 1 + random.nextInt(8);
+			List<Point> starts = new ArrayList<>(open.subList(0, 1 + random.nextInt(4)));
+			List<Point> goals = new ArrayList<>(open.subList(starts.size(), starts.size() + goalCount));
+
+			// Distance from the closest start to each goal, found with one breadth first search per goal
+			List<Integer> distances = new ArrayList<>();
+			for (Point goal : goals) {
+				DistanceField field = new DistanceField(maze, goal);
+				int closest = -1;
+				for (Point start : starts) {
+					int distance = field.getDistance(start.x, start.y);
+					if (distance != -1 && (closest == -1 || distance < closest)) closest = distance;
+				}
+				if (closest != -1) distances.add(closest);
+			}
+			Collections.sort(distances);
+
+			int k = Math.min(goalCount, 5);
+			String message = topology + " maze " + i + " with " + goalCount + " goals";
+			List<Path> paths = AstarPathfinding.findNearestPaths(maze, starts, goals, k);
+			assertEquals(Math.min(k, distances.size()), paths.size(), message + " should find a path to every reachable goal up to k");
+			Set<Point> reached = new HashSet<>();
+			for (int j = 0; j < paths.size(); j++) {
+				Path path = paths.get(j);
+				assertEquals(distances.get(j) + 1, path.size(), message + " path " + j + " should reach the next closest goal");
+
+				Iterator<Point> moves = path.iterator();
+				Point previous = moves.next();
+				assertTrue(starts.contains(previous), message + " path " + j + " should begin at a start");
+				while (moves.hasNext()) {
+					Point move = moves.next();
+					assertEquals(1, Math.abs(move.x - previous.x) + Math.abs(move.y - previous.y), message + " jumps from " + previous + " to " + move);
+					assertTrue(maze.isPassable(move.x, move.y), message + " goes through " + move);
+					previous = move;
+				}
+				assertTrue(goals.contains(previous), message + " path " + j + " should finish at a goal");
+				assertTrue(reached.add(previous), message + " should reach each goal once");
+			}
+		}
+	}
+
+	@Test
+	void testCooperativeAgents()
+		throws IOException
+	{
+		Random random = new Random(7);
+		for (int i = 0; i < 50; i++) {
+			MazeGenerator.Topology topology = i % 2 == 0 ? MazeGenerator.Topology.CAVES : MazeGenerator.Topology.RANDOM_OBSTACLES;
+			Maze maze = generateMaze(topology, 40, 40, random.nextLong());
+
+			// Distinct random open tiles for the starts and goals of 40 agents
+			List<Point> open = getOpenTiles(maze);
+			Collections.shuffle(open, random);
+			int agents = Math.min(40, open.size() / 2);
+			List<Point> starts = open.subList(0, agents);
+			List<Point> goals = open.subList(agents, agents * 2);
+
+			CooperativePathfinding planner = new CooperativePathfinding(maze);
+			List<Path> paths = planner.findPaths(starts, goals);
+			assertNoCollisions(maze, starts, goals, paths, topology + " maze " + i);
+
+			planner.setParallel(true);
+			assertEquals(paths, planner.findPaths(starts, goals), "parallel planning should give the same paths");
+		}
+	}
+
+	// Checks every engine's path on the maze for validity and for the same length as a breadth first search
+	private void checkEngines(Maze maze, String name)
+	{
+		int shortest = findShortestLength(maze);
+		for (Map.Entry<String, Function<Maze, Path>> engine : engines.entrySet()) {
+			String message = engine.getKey() + " on " + name;
+			Path path = engine.getValue().apply(maze);
+			if (shortest == -1) {
+				assertNull(path, message + " should find no path");
+				continue;
+			}
+
+			assertNotNull(path, message + " should find a path");
+			assertValidPath(maze, path, message);
+			assertEquals(shortest, path.size(), message + " should find a shortest path");
+		}
+	}
+
+	// Checks that the path goes from the start to the end one tile at a time without going through walls
+	private static void assertValidPath(Maze maze, Path path, String message)
+	{
+		assertValidPath(maze, maze.getStart(), maze.getEnd(), path, message);
+	}
+
+	// Checks that the path goes from one tile to another one tile at a time without going through walls
+	private static void assertValidPath(Maze maze, Point from, Point to, Path path, String message)
+	{
+		Iterator<Point> moves = path.iterator();
+		Point previous = moves.next();
+		assertEquals(from, previous, message + " should begin at " + from);
+		while (moves.hasNext()) {
+			Point move = moves.next();
+			int distance = Math.abs(move.x - previous.x) + Math.abs(move.y - previous.y);
+			assertEquals(1, distance, message + " jumps from " + previous + " to " + move);
+			assertTrue(maze.isPassable(move.x, move.y), message + " goes through " + move);
+			previous = move;
+		}
+		assertEquals(to, previous, message + " should finish at " + to);
+	}
+
+	// Checks a path between two tiles against the distance field of the target, either tile may be a wall
+	private static void assertShortestPath(Maze maze, Point from, Point to, Path path, String message)
+	{
+		int distance = maze.isPassable(to.x, to.y) ? new DistanceField(maze, to).getDistance(from.x, from.y) : -1;
+		if (distance == -1) {
+			assertNull(path, message + " should find no path");
+			return;
+		}
+		assertNotNull(path, message + " should find a path");
+		assertEquals(distance + 1, path.size(), message + " should find a shortest path");
+		assertValidPath(maze, from, to, path, message);
+	}
+
+	// Checks that agents never share a tile or swap tiles, and that planned agents finish at their goals
+	private static void assertNoCollisions(Maze maze, List<Point> starts, List<Point> goals, List<Path> paths, String message)
+	{
+		// Position of every agent at each time, agents without a path and finished agents stay where they are
+		int longest = 0;
+		List<List<Point>> timelines = new ArrayList<>();
+		for (int agent = 0; agent < paths.size(); agent++) {
+			List<Point> timeline = new ArrayList<>();
+			if (paths.get(agent) == null) {
+				timeline.add(starts.get(agent));
+			} else {
+				paths.get(agent).iterator().forEachRemaining(timeline::add);
+				assertEquals(starts.get(agent), timeline.get(0), message + " agent " + agent + " should begin at its start");
+				assertEquals(goals.get(agent), timeline.get(timeline.size() - 1), message + " agent " + agent + " should finish at its goal");
+			}
+			longest = Math.max(longest, timeline.size());
+			timelines.add(timeline);
+		}
+
+		for (int time = 0; time < longest; time++) {
+			Map<Point, Integer> occupied = new HashMap<>();
+			for (int agent = 0; agent < timelines.size(); agent++) {
+				Point position = positionAt(timelines.get(agent), time);
+				Integer other = occupied.put(position, agent);
+				assertNull(other, message + " agents " + other + " and " + agent + " meet at " + position + " at time " + time);
+
+				if (time == 0) continue;
+				Point previous = positionAt(timelines.get(agent), time - 1);
+				assertTrue(Math.abs(position.x - previous.x) + Math.abs(position.y - previous.y) <= 1, message + " agent " + agent + " jumps");
+				assertTrue(maze.isPassable(position.x, position.y), message + " agent " + agent + " goes through a wall");
+				for (int otherAgent = 0; otherAgent < agent; otherAgent++) {
+					boolean swapped = !position.equals(previous)
+						&& position.equals(positionAt(timelines.get(otherAgent), time - 1))
+						&& previous.equals(positionAt(timelines.get(otherAgent), time));
+					assertFalse(swapped, message + " agents " + otherAgent + " and " + agent + " swap at time " + time);
+				}
+			}
+		}
+	}
+
+	// Returns the position of an agent at the time, the last position once the timeline is over
+	private static Point positionAt(List<Point> timeline, int time)
+	{
+		return timeline.get(Math.min(time, timeline.size() - 1));
+	}
+
+	// Writes a generated maze to the maze file and loads it
+	private Maze generateMaze(MazeGenerator.Topology topology, int width, int height, long seed)
+		throws IOException
+	{
+		new MazeGenerator(topology, width, height, seed).write(mazeFile, MazeGenerator.Format.TEXT);
+		return new Maze(mazeFile);
+	}
+
+	// Returns every tile of the maze that isn't a wall
+	private static List<Point> getOpenTiles(Maze maze)
+	{
+		List<Point> open = new ArrayList<>();
+		for (int y = 0; y < maze.getHeight(); y++) {
+			for (int x = 0; x < maze.getWidth(); x++) {
+				if (maze.isPassable(x, y)) open.add(new Point(x, y));
+			}
+		}
+		return open;
+	}
+
+	// Returns the number of tiles in the shortest path from the start to the end, -1 if there is none
+	private static int findShortestLength(Maze maze)
+	{
+		int width = maze.getWidth();
+		int[] distances = new int[width * maze.getHeight()];
+		Arrays.fill(distances, -1);
+		Point start = maze.getStart();
+		Point end = maze.getEnd();
+
+		ArrayDeque<Point> queue = new ArrayDeque<>();
+		queue.add(start);
+		distances[start.y * width + start.x] = 1;
+		while (!queue.isEmpty()) {
+			Point tile = queue.poll();
+			int distance = distances[tile.y * width + tile.x];
+			if (tile.equals(end)) return distance;
+
+			Point[] neighbors = {
+				new Point(tile.x + 1, tile.y), new Point(tile.x, tile.y + 1),
+				new Point(tile.x - 1, tile.y), new Point(tile.x, tile.y - 1)};
+			for (Point neighbor : neighbors) {
+				if (maze.isPassable(neighbor.x, neighbor.y) && distances[neighbor.y * width + neighbor.x] == -1) {
+					distances[neighbor.y * width + neighbor.x] = distance + 1;
+					queue.add(neighbor);
+				}
+			}
+		}
+		return -1;
+	}
+
+	// Runs A* with the heuristic and tie breaking, storing the number of tiles it explored in lastExpanded
+	private Path findPath(Maze maze, AstarPathfinding.Heuristic heuristic, AstarPathfinding.TieBreaking tieBreaking)
+	{
+		return AstarPathfinding.findPath(maze, heuristic, tieBreaking, (nodesExpanded, bestF) -> lastExpanded = nodesExpanded, 0);
+	}
+
+	// Returns the bytes allocated by this thread so far, -1 if the JVM doesn't support measuring it
+	private static long getAllocatedBytes()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
@@ -49,6 +49,15 @@ public class Path
 		moves.pop();
 	}
 	
+	/**
+	 * Returns the number of positions in the path including the initial position.
+	 * @return path size
+	 */
+	public int size()
+	{
+		return moves.size();
+	}
+	
 	/**
 	 * Returns an iterator to traverse the moves from initial position to last.
 	 */
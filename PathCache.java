@@ -0,0 +1,183 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.awt.Point;
+import java.awt.Rectangle;
+
+/**
+ * Remembers recently found paths in a Maze and keeps them correct as patches are applied to it.
+ * <p> The cache listens to its maze and each patch only drops the paths it could change: a path is dropped if one
+ * of its tiles became a wall, or if a patched region with open tiles is close enough to both of its ends that a
+ * detour through the region could be shorter. Component labels are repaired in place, so paths between tiles that
+ * can't reach each other are answered without a search.
+ * <p> The least recently used path is forgotten once the cache is full. Remove the cache from the maze with
+ * Maze.removeChangeListener once it isn't needed.
+ */
+public class PathCache implements Maze.ChangeListener
+{
+	private Maze maze;
+	private int capacity;
+	private ConnectedComponents components;
+	// Paths by start tile in the high 32 bits and end tile in the low 32 bits, least recently used first
+	private LinkedHashMap<Long, CachedPath> paths;
+	private long hitCount, missCount;
+
+	/**
+	 * Creates an empty cache and starts listening to the maze's changes.
+	 * @param maze the maze paths are found in
+	 * @param capacity the most paths to remember
+	 * @throws IllegalArgumentException if maze is null or capacity is less than 1
+	 */
+	public PathCache(Maze maze, int capacity)
+	{
+		if (maze == null) throw new IllegalArgumentException("null parameter");
+		if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+
+		this.maze = maze;
+		this.capacity = capacity;
+		this.components = new ConnectedComponents(maze);
+		this.paths = new LinkedHashMap<>(16, 0.75f, true);
+		maze.addChangeListener(this);
+	}
+
+	/**
+	 * Returns the shortest path between two tiles, searching only if it isn't remembered
+	 * @param from the tile the path starts at
+	 * @param to the tile the path ends at
+	 * @return the closest path between the two points in the maze. Returns null if either tile is a wall or
+	 * out of bounds, or there is no possible path.
+	 * @throws IllegalArgumentException if a parameter is null
+	 */
+	public Path findPath(Point from, Point to)
+	{
+		if (!components.isConnected(from, to)) return null;
+
+		long key = ((long)(from.y * maze.getWidth() + from.x) << 32) | (to.y * maze.getWidth() + to.x);
+		CachedPath cached = paths.get(key);
+		if (cached != null) {
+			hitCount++;
+			return cached.toPath();
+		}
+
+		missCount++;
+		Path path = AstarPathfinding.findPath(maze, List.of(from), List.of(to));
+		paths.put(key, new CachedPath(path));
+		if (paths.size() > capacity) {
+			Iterator<Long> eldest = paths.keySet().iterator();
+			eldest.next();
+			eldest.remove();
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the number of paths remembered
+	 * @return cache size
+	 */
+	public int size()
+	{
+		return paths.size();
+	}
+
+	/**
+	 * Returns the number of paths returned from the cache without a search
+	 * @return hit count
+	 */
+	public long getHitCount()
+	{
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of paths that had to be searched for
+	 * @return miss count
+	 */
+	public long getMissCount()
+	{
+		return missCount;
+	}
+
+	@Override
+	public void onChange(Maze maze, List<Rectangle> regions)
+	{
+		components.update(maze, regions);
+
+		// Regions without open tiles can only cut paths, never shorten them
+		boolean[] opened = new boolean[regions.size()];
+		for (int i = 0; i < regions.size(); i++) {
+			Rectangle region = regions.get(i);
+			for (int y = region.y; y < region.y + region.height && !opened[i]; y++) {
+				for (int x = region.x; x < region.x + region.width && !opened[i]; x++) {
+					opened[i] = maze.isPassable(x, y);
+				}
+			}
+		}
+
+		for (Iterator<CachedPath> cached = paths.values().iterator(); cached.hasNext(); ) {
+			if (cached.next().isChangedBy(regions, opened)) cached.remove();
+		}
+	}
+
+	// The tiles of a remembered path and the rectangle around them
+	private class CachedPath
+	{
+		private int[] xs, ys;
+		private int left, top, right, bottom;
+
+		private CachedPath(Path path)
+		{
+			xs = new int[path.size()];
+			ys = new int[path.size()];
+			Iterator<Point> moves = path.iterator();
+			for (int i = 0; i < xs.length; i++) {
+				Point move = moves.next();
+				xs[i] = move.x;
+				ys[i] = move.y;
+			}
+
+			left = right = xs[0];
+			top = bottom = ys[0];
+			for (int i = 1; i < xs.length; i++) {
+				left = Math.min(left, xs[i]);
+				right = Math.max(right, xs[i]);
+				top = Math.min(top, ys[i]);
+				bottom = Math.max(bottom, ys[i]);
+			}
+		}
+
+		// Returns whether the patched regions could have blocked the path or made a shorter one
+		private boolean isChangedBy(List<Rectangle> regions, boolean[] opened)
+		{
+			int moves = xs.length - 1;
+			for (int i = 0; i < regions.size(); i++) {
+				Rectangle region = regions.get(i);
+				if (region.x <= right && region.y <= bottom && region.x + region.width > left && region.y + region.height > top) {
+					for (int tile = 0; tile < xs.length; tile++) {
+						if (region.contains(xs[tile], ys[tile]) && !maze.isPassable(xs[tile], ys[tile])) return true;
+					}
+				}
+
+				// A detour through the region is at least as long as the walk to the region and on to the end
+				if (opened[i] && distanceTo(region, xs[0], ys[0]) + distanceTo(region, xs[moves], ys[moves]) < moves) return true;
+			}
+			return false;
+		}
+
+		private Path toPath()
+		{
+			Path path = new Path();
+			for (int i = 0; i < xs.length; i++) {
+				path.push(xs[i], ys[i]);
+			}
+			return path;
+		}
+	}
+
+	// Returns the fewest moves from a tile to the closest tile of the region if nothing was in the way
+	private static int distanceTo(Rectangle region, int x, int y)
+	{
+		int dx = Math.max(0, Math.max(region.x - x, x - (region.x + region.width - 1)));
+		int dy = Math.max(0, Math.max(region.y - y, y - (region.y + region.height - 1)));
+		return dx + dy;
+	}
+}
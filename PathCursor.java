@@ -0,0 +1,147 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.awt.Point;
+
+import java.io.IOException;
+
+/**
+ * Streams the tiles of a path in order without building a Path of every move.
+ * <p> A Path holds a Point object for each move, which is several times the size of the search itself once routes
+ * are millions of moves long. A cursor keeps only the parent array of the search that found it. The parents along
+ * the path are reversed in place (pointer reversal) so each tile links to the next one instead of the one before,
+ * and the tiles are read by following the links from the start.
+ * <p> Closing the cursor releases the array. Each cursor can be read once.
+ */
+public class PathCursor implements Iterator<Point>, AutoCloseable
+{
+	// Number of tiles written to a channel at a time
+	private static final int TILES_PER_WRITE = 1024;
+
+	// Size of the maze the path was found in
+	private int width, height;
+	// Tile after each tile of the path, indexed by y * width + x. Tiles that aren't on the path hold leftover values.
+	private int[] links;
+	private int nextTile;
+	private int size;
+	private int remaining;
+
+	// Constructor that takes the parent array of a finished search, which the cursor reverses and takes over.
+	// It is package private since cursors are only made by the pathfinding classes.
+	PathCursor(int[] parents, int width, int height, int goalTile, int size)
+	{
+		this.width = width;
+		this.height = height;
+		this.links = parents;
+		this.size = size;
+		this.remaining = size;
+
+		// Walk back from the goal, pointing each tile at the one after it
+		int tile = goalTile, after = -1;
+		for (int i = 1; i < size; i++) {
+			int before = parents[tile];
+			parents[tile] = after;
+			after = tile;
+			tile = before;
+		}
+		parents[tile] = after;
+		nextTile = tile;
+	}
+
+	/**
+	 * Returns the number of positions in the path including the initial position
+	 * @return path size
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns whether there are tiles left to read
+	 * @return false once every tile was read or the cursor is closed
+	 */
+	@Override
+	public boolean hasNext()
+	{
+		return remaining > 0 && links != null;
+	}
+
+	/**
+	 * Returns the next tile of the path
+	 * @return the next position, starting at the start of the path
+	 * @throws NoSuchElementException if every tile was read
+	 * @throws IllegalStateException if the cursor is closed
+	 */
+	@Override
+	public Point next()
+	{
+		int tile = nextTile();
+		return new Point(tile % width, tile / width);
+	}
+
+	/**
+	 * Writes the remaining tiles to a channel as big-endian int x and y pairs, a block at a time.
+	 * @param channel the channel to write to
+	 * @return the number of tiles written
+	 * @throws IllegalArgumentException if channel is null
+	 * @throws IllegalStateException if the cursor is closed
+	 * @throws IOException if the channel can't be written
+	 */
+	public long writeTo(WritableByteChannel channel)
+		throws IOException
+	{
+		if (channel == null) throw new IllegalArgumentException("null parameter");
+		if (links == null) throw new IllegalStateException("cursor is closed");
+
+		ByteBuffer buffer = ByteBuffer.allocate(TILES_PER_WRITE * 2 * Integer.BYTES);
+		long written = 0;
+		while (remaining > 0) {
+			int tile = nextTile();
+			buffer.putInt(tile % width).putInt(tile / width);
+			written++;
+			if (!buffer.hasRemaining() || remaining == 0) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				buffer.clear();
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Releases the search's parent array. Reading a closed cursor throws an IllegalStateException.
+	 */
+	@Override
+	public void close()
+	{
+		links = null;
+	}
+
+	// Returns the tile index of the next tile and moves past it
+	int nextTile()
+	{
+		if (links == null) throw new IllegalStateException("cursor is closed");
+		if (remaining == 0) throw new NoSuchElementException("no tiles left");
+
+		int tile = nextTile;
+		nextTile = links[tile];
+		remaining--;
+		return tile;
+	}
+
+	// Returns the width of the maze, to turn tile indexes back into positions
+	int getWidth()
+	{
+		return width;
+	}
+
+	// Returns the height of the maze, to check that the cursor is drawn on a maze of the same size
+	int getHeight()
+	{
+		return height;
+	}
+}
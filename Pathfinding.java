@@ -15,11 +15,26 @@ public class Pathfinding
 	/**
 	 * Gets the maze filename from the user and uses AStarPathfinding class to get the shortest path.
 	 * The path is then outputted to the console.
-	 * @param args command line arguments not in use
+	 * <p> If a byte limit is given as the first argument LowMemoryPathfinding is used instead, and the memory
+	 * it used is outputted after the path.
+	 * @param args optional byte limit for LowMemoryPathfinding
 	 */
 	public static void main(String[] args)
 		throws FileNotFoundException
 	{
+		// Use the low memory search if a byte limit is given
+		LowMemoryPathfinding lowMemory = null;
+		if (args.length > 0) {
+			long byteLimit;
+			try {
+				byteLimit = Long.parseLong(args[0]);
+			} catch (NumberFormatException err) {
+				System.out.println("Usage: java Pathfinding [byteLimit]");
+				return;
+			}
+			lowMemory = new LowMemoryPathfinding(byteLimit);
+		}
+
 		// Get maze filename from user
 		System.out.print("Enter maze filename: ");
 		Scanner console = new Scanner(System.in);
@@ -42,6 +57,17 @@ public class Pathfinding
 		}
 		
 		// Find path and output it
+		if (lowMemory != null) {
+			Path lowMemoryPath = lowMemory.findPath(maze);
+			if (lowMemoryPath == null) {
+				System.out.println("Low memory search found no path!");
+			} else {
+				System.out.println(maze.toString(lowMemoryPath));
+			}
+			System.out.println("Peak memory usage: " + lowMemory.getPeakMemoryUsage() + " of " + lowMemory.getByteLimit() + " bytes");
+			return;
+		}
+
 		Path astarPath = AstarPathfinding.findPath(maze);
 		if (astarPath == null) {
 			System.out.println("A* Pathfinding Algorithm found no path!");
@@ -0,0 +1,28 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.awt.Point;
+
+/**
+ * Helpers for the Points that Grid implementations hand out.
+ */
+final class Points
+{
+	// Only has static methods
+	private Points()
+	{
+	}
+
+	/**
+	 * Copies each point of a list, for grids that return their start or end tiles without letting callers move them
+	 * @param points the points to copy
+	 * @return a new list of new points
+	 */
+	static List<Point> copy(List<Point> points)
+	{
+		List<Point> copies = new ArrayList<>();
+		for (Point point : points) {
+			copies.add(new Point(point));
+		}
+		return copies;
+	}
+}
@@ -0,0 +1,76 @@
+import java.awt.Point;
+
+/**
+ * A Grid that doesn't store any tiles. Each tile is a wall if its noise value is below the density.
+ * <p> Uses the same noise as MazeGenerator's RANDOM_OBSTACLES topology, so with the same seed, density, start and end
+ * this grid has the same layout as the generated file without ever writing or reading it.
+ * <p> The grid's own memory use doesn't depend on its size. Searches still need their own arrays: AstarPathfinding
+ * allocates a g value, a parent and a calculated flag for every tile (about 9 bytes each), so that workspace is
+ * what limits the size of grid it can search. LowMemoryPathfinding only keeps its frontier.
+ */
+public final class ProceduralGrid implements Grid
+{
+	private final int width, height;
+	private final long seed;
+	private final double density;
+	private final Point start, end;
+
+	/**
+	 * Constructor that describes the grid's layout.
+	 * @param width the width of the grid
+	 * @param height the height of the grid
+	 * @param seed the seed of the noise
+	 * @param density the chance of a tile being a wall from 0 to 1
+	 * @param start the start tile, always passable
+	 * @param end the end tile, always passable
+	 * @throws IllegalArgumentException if a point is null or outside the grid, or density is not between 0 and 1
+	 */
+	public ProceduralGrid(int width, int height, long seed, double density, Point start, Point end)
+	{
+		if (start == null || end == null) throw new IllegalArgumentException("null parameter");
+		if (!(density >= 0 && density <= 1)) throw new IllegalArgumentException("density must be between 0 and 1");
+		if (start.x < 0 || start.y < 0 || start.x >= width || start.y >= height
+			|| end.x < 0 || end.y < 0 || end.x >= width || end.y >= height) {
+			throw new IllegalArgumentException("start and end must be inside the grid");
+		}
+
+		this.width = width;
+		this.height = height;
+		this.seed = seed;
+		this.density = density;
+		this.start = new Point(start);
+		this.end = new Point(end);
+	}
+
+	@Override
+	public int getWidth()
+	{
+		return width;
+	}
+
+	@Override
+	public int getHeight()
+	{
+		return height;
+	}
+
+	@Override
+	public boolean isPassable(int x, int y)
+	{
+		if (x < 0 || y < 0 || x >= width || y >= height) return false;
+		if ((x == start.x && y == start.y) || (x == end.x && y == end.y)) return true;
+		return MazeGenerator.noise(seed, x, y) >= density;
+	}
+
+	@Override
+	public Point getStart()
+	{
+		return new Point(start);
+	}
+
+	@Override
+	public Point getEnd()
+	{
+		return new Point(end);
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * Records which agent is on which tile at each time step so agents can plan paths that don't collide.
+ * <p> Tiles are given as indexes (y * width + x) and times as the number of steps since planning started.
+ * <p> Only reserved tiles are stored, so the table's size depends on the number of planned moves and not on the
+ * size of the maze or the length of time planned for.
+ */
+public class ReservationTable
+{
+	// Agent on each (time, tile) pair
+	private LongIntMap reservations;
+	// Last time each tile is reserved by a move
+	private LongIntMap lastReserved;
+	// Tiles an agent stays on forever once it arrives, with the time it arrives
+	private LongIntMap parkedTimes;
+	private LongIntMap parkedAgents;
+
+	/**
+	 * Default constructor, creates an empty table.
+	 */
+	public ReservationTable()
+	{
+		reservations = new LongIntMap();
+		lastReserved = new LongIntMap();
+		parkedTimes = new LongIntMap();
+		parkedAgents = new LongIntMap();
+	}
+
+	/**
+	 * Reserves the tile at the specified time for the agent.
+	 * @param tile the tile index
+	 * @param time the time step
+	 * @param agent the agent's id, must not be negative
+	 */
+	public void reserve(int tile, int time, int agent)
+	{
+		reservations.put(key(tile, time), agent);
+		if (lastReserved.get(tile, -1) < time) {
+			lastReserved.put(tile, time);
+		}
+	}
+
+	/**
+	 * Reserves the tile for the agent from the specified time onwards, used once an agent reaches its goal.
+	 * @param tile the tile index
+	 * @param time the first time step the agent stays on the tile
+	 * @param agent the agent's id, must not be negative
+	 */
+	public void reserveFrom(int tile, int time, int agent)
+	{
+		parkedTimes.put(tile, time);
+		parkedAgents.put(tile, agent);
+	}
+
+	/**
+	 * Returns the agent on the tile at the specified time
+	 * @param tile the tile index
+	 * @param time the time step
+	 * @return the agent's id, -1 if the tile is free
+	 */
+	public int getAgent(int tile, int time)
+	{
+		int agent = reservations.get(key(tile, time), -1);
+		if (agent == -1 && parkedTimes.get(tile, Integer.MAX_VALUE) <= time) {
+			agent = parkedAgents.get(tile, -1);
+		}
+		return agent;
+	}
+
+	/**
+	 * Returns whether any agent is on the tile at the specified time
+	 * @param tile the tile index
+	 * @param time the time step
+	 * @return true if the tile is reserved
+	 */
+	public boolean isReserved(int tile, int time)
+	{
+		return getAgent(tile, time) != -1;
+	}
+
+	/**
+	 * Returns whether an agent can move from one tile to another between time and time + 1.
+	 * <p> The move is blocked if the destination is reserved at time + 1 or if another agent moves the opposite
+	 * way at the same time, since the two agents would pass through each other.
+	 * @param from the tile moved from
+	 * @param to the tile moved to, the same as from for waiting
+	 * @param time the time step the move starts at
+	 * @return true if the move doesn't collide with any reservation
+	 */
+	public boolean canMove(int from, int to, int time)
+	{
+		if (isReserved(to, time + 1)) return false;
+		if (from == to) return true;
+
+		int swapping = reservations.get(key(to, time), -1);
+		return swapping == -1 || swapping != reservations.get(key(from, time + 1), -1);
+	}
+
+	/**
+	 * Returns whether the tile is free from the specified time onwards, so an agent can stay on it forever.
+	 * @param tile the tile index
+	 * @param time the first time step to check
+	 * @return true if no agent is on the tile at time or any time after
+	 */
+	public boolean isFreeFrom(int tile, int time)
+	{
+		return lastReserved.get(tile, -1) < time && !parkedTimes.containsKey(tile);
+	}
+
+	/**
+	 * Returns the number of (tile, time) reservations in the table, not counting agents staying on their goals.
+	 * @return reservation count
+	 */
+	public int size()
+	{
+		return reservations.size();
+	}
+
+	/**
+	 * Removes every reservation so the table can be reused for the next plan.
+	 */
+	public void clear()
+	{
+		reservations.clear();
+		lastReserved.clear();
+		parkedTimes.clear();
+		parkedAgents.clear();
+	}
+
+	// Combines a tile and a time into one key
+	private static long key(int tile, int time)
+	{
+		return ((long)time << 32) | (tile & 0xFFFFFFFFL);
+	}
+}
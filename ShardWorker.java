@@ -0,0 +1,240 @@
+import java.util.Arrays;
+import java.io.File;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import java.io.IOException;
+
+/**
+ * A worker process that owns one rectangular shard of a maze for ShardedPathfinding.
+ * <p> The worker maps the maze file with MappedGrid, so only the rows of its own shard are loaded, and finds its
+ * border tiles (open tiles next to an open tile of another shard) when it starts. It then listens on a loopback
+ * port, printing "PORT number" on its own line once it is ready, and answers the coordinator's requests until it is
+ * told to shut down or the connection closes.
+ * <p> Starting only reads the shard once. Distances between border tiles aren't measured ahead of time: the
+ * coordinator asks for the distances from a border tile with a DISTANCES request the first time a search needs
+ * them, so each request is one breadth first search of the shard.
+ * <p> Requests and replies are big-endian ints. Every search stays inside the shard.
+ * <p> BORDERS - replies with the border count and the x and y of each border tile.
+ * <p> DISTANCES x y targetX targetY - replies with the distance from the tile to the target (-1 if the target isn't
+ * given or can't be reached) and then the distance to each border tile (-1 if it can't be reached).
+ * <p> PATH fromX fromY toX toY - replies with the number of tiles in a shortest path (0 if there is none) and the
+ * x and y of each tile in order.
+ * <p> SHUTDOWN - closes the connection and ends the process.
+ */
+public class ShardWorker
+{
+	/**
+	 * Request codes
+	 */
+	static final int SHUTDOWN = 0, BORDERS = 1, DISTANCES = 2, PATH = 3;
+
+	// x and y offsets of the east, south, west and north neighbors
+	private static final int[] DIRECTION_X = {1, 0, -1, 0};
+	private static final int[] DIRECTION_Y = {0, 1, 0, -1};
+
+	// The shard's bounds in maze coordinates, right and bottom are exclusive
+	private int left, top, right, bottom;
+	private int shardWidth, shardHeight;
+	// Open tiles of the shard, indexed by local y * shardWidth + local x
+	private boolean[] open;
+	// Local index of each border tile
+	private int[] borderTiles;
+	// Search arrays reused by every request
+	private int[] distances, parents, queue;
+
+	/**
+	 * Starts a worker from the command line.
+	 * <p> Usage: java ShardWorker mazeFile left top right bottom
+	 * @param args command line arguments, the bounds of the shard with right and bottom exclusive
+	 */
+	public static void main(String[] args)
+		throws IOException
+	{
+		if (args.length < 5) {
+			System.out.println("Usage: java ShardWorker mazeFile left top right bottom");
+			return;
+		}
+
+		ShardWorker worker = new ShardWorker(new MappedGrid(new File(args[0])), Integer.parseInt(args[1]),
+			Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			System.out.println("PORT " + server.getLocalPort());
+			System.out.flush();
+			try (Socket socket = server.accept()) {
+				worker.serve(socket);
+			}
+		}
+	}
+
+	// Copies the shard's tiles and finds its border tiles.
+	// It is private since workers are only started as processes by ShardedPathfinding.
+	private ShardWorker(Grid maze, int left, int top, int right, int bottom)
+	{
+		if (left < 0 || top < 0 || right > maze.getWidth() || bottom > maze.getHeight() || left >= right || top >= bottom) {
+			throw new IllegalArgumentException("shard must be inside the maze");
+		}
+
+		this.left = left;
+		this.top = top;
+		this.right = right;
+		this.bottom = bottom;
+		this.shardWidth = right - left;
+		this.shardHeight = bottom - top;
+		this.open = new boolean[shardWidth * shardHeight];
+		this.distances = new int[open.length];
+		this.parents = new int[open.length];
+		this.queue = new int[open.length];
+
+		// Border tiles have an open neighbor outside of the shard
+		int[] borders = new int[open.length];
+		int borderCount = 0;
+		for (int y = top; y < bottom; y++) {
+			for (int x = left; x < right; x++) {
+				int tile = (y - top) * shardWidth + (x - left);
+				open[tile] = maze.isPassable(x, y);
+				if (!open[tile]) continue;
+				for (int direction = 0; direction < 4; direction++) {
+					int nextX = x + DIRECTION_X[direction], nextY = y + DIRECTION_Y[direction];
+					if (!isInside(nextX, nextY) && maze.isPassable(nextX, nextY)) {
+						borders[borderCount++] = tile;
+						break;
+					}
+				}
+			}
+		}
+		borderTiles = Arrays.copyOf(borders, borderCount);
+	}
+
+	// Answers requests on the connection until it is told to shut down or the connection closes
+	private void serve(Socket socket)
+		throws IOException
+	{
+		DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		while (true) {
+			int request;
+			try {
+				request = input.readInt();
+			} catch (EOFException err) {
+				return;
+			}
+
+			switch (request) {
+				case BORDERS:
+					writeBorders(output);
+					break;
+				case DISTANCES:
+					writeDistances(output, input.readInt(), input.readInt(), input.readInt(), input.readInt());
+					break;
+				case PATH:
+					writePath(output, input.readInt(), input.readInt(), input.readInt(), input.readInt());
+					break;
+				case SHUTDOWN:
+					return;
+				default:
+					throw new IOException("Unknown request " + request);
+			}
+			output.flush();
+		}
+	}
+
+	// Writes the border tiles
+	private void writeBorders(DataOutputStream output)
+		throws IOException
+	{
+		output.writeInt(borderTiles.length);
+		for (int tile : borderTiles) {
+			output.writeInt(left + tile % shardWidth);
+			output.writeInt(top + tile / shardWidth);
+		}
+	}
+
+	// Writes the distances from a tile to the target and to every border tile
+	private void writeDistances(DataOutputStream output, int x, int y, int targetX, int targetY)
+		throws IOException
+	{
+		int from = toLocalTile(x, y);
+		int target = toLocalTile(targetX, targetY);
+		if (from != -1) search(from, -1);
+		output.writeInt(from != -1 && target != -1 ? distances[target] : -1);
+		for (int tile : borderTiles) {
+			output.writeInt(from != -1 ? distances[tile] : -1);
+		}
+	}
+
+	// Writes a shortest path between two tiles of the shard
+	private void writePath(DataOutputStream output, int fromX, int fromY, int toX, int toY)
+		throws IOException
+	{
+		int from = toLocalTile(fromX, fromY);
+		int to = toLocalTile(toX, toY);
+		if (from == -1 || to == -1 || !search(from, to)) {
+			output.writeInt(0);
+			return;
+		}
+
+		// Follow the parents back from the end and write the tiles from the start
+		int[] tiles = new int[distances[to] + 1];
+		int tile = to;
+		for (int i = tiles.length - 1; i >= 0; i--) {
+			tiles[i] = tile;
+			tile = parents[tile];
+		}
+		output.writeInt(tiles.length);
+		for (int pathTile : tiles) {
+			output.writeInt(left + pathTile % shardWidth);
+			output.writeInt(top + pathTile / shardWidth);
+		}
+	}
+
+	/*
+	 * Breadth first search inside the shard that fills in distances and parents.
+	 *
+	 * @param from the local tile to search from
+	 * @param to the local tile to stop at, -1 to reach every tile
+	 * @return true if the target was reached
+	 */
+	private boolean search(int from, int to)
+	{
+		Arrays.fill(distances, -1);
+		int head = 0, tail = 0;
+		distances[from] = 0;
+		queue[tail++] = from;
+		while (head < tail) {
+			int tile = queue[head++];
+			if (tile == to) return true;
+			int x = tile % shardWidth, y = tile / shardWidth;
+			for (int direction = 0; direction < 4; direction++) {
+				int nextX = x + DIRECTION_X[direction], nextY = y + DIRECTION_Y[direction];
+				if (nextX < 0 || nextY < 0 || nextX >= shardWidth || nextY >= shardHeight) continue;
+				int next = nextY * shardWidth + nextX;
+				if (!open[next] || distances[next] != -1) continue;
+				distances[next] = distances[tile] + 1;
+				parents[next] = tile;
+				queue[tail++] = next;
+			}
+		}
+		return false;
+	}
+
+	// Returns the local index of an open tile of the shard, -1 if it is outside of the shard or a wall
+	private int toLocalTile(int x, int y)
+	{
+		if (!isInside(x, y)) return -1;
+		int tile = (y - top) * shardWidth + (x - left);
+		return open[tile] ? tile : -1;
+	}
+
+	// Returns whether the maze position is in this shard
+	private boolean isInside(int x, int y)
+	{
+		return x >= left && y >= top && x < right && y < bottom;
+	}
+}
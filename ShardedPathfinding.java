@@ -0,0 +1,669 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.io.File;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.UncheckedIOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.awt.Point;
+
+import java.io.IOException;
+
+/**
+ * Finds shortest paths in a maze split into rectangular shards, each owned by a ShardWorker process on this machine.
+ * <p> No process holds the whole maze. Every worker maps the maze file and keeps only its own shard. The coordinator
+ * joins the shards into an overlay graph whose nodes are the border tiles of every shard (open tiles next to an open
+ * tile of another shard): tiles on either side of a shard edge are linked by one move, and tiles of the same shard
+ * are linked by their distance inside it.
+ * <p> Distances inside a shard are only measured when a search first reaches one of its border tiles, by asking the
+ * shard for the distances from that tile to the rest of its borders. The shard keeps the answer for later searches,
+ * so the overlay only holds the rows that searches have needed rather than every pair of border tiles, and workers
+ * start without searching their shards at all.
+ * <p> A search asks the shards holding the two tiles for their distances to their own borders, runs Dijkstra's
+ * algorithm on the overlay graph, then has each shard find the tiles of its segments of the route in parallel.
+ * Any shortest path enters and leaves each shard through border tiles, so the stitched Path is a shortest path.
+ * <p> Workers are started with the java executable of this JVM and talk to the coordinator over loopback sockets.
+ * Closing the pathfinder shuts them down.
+ */
+public class ShardedPathfinding implements AutoCloseable
+{
+	// x and y offsets of the east, south, west and north neighbors
+	private static final int[] DIRECTION_X = {1, 0, -1, 0};
+	private static final int[] DIRECTION_Y = {0, 1, 0, -1};
+	// Seconds to wait for a worker to exit once it is told to shut down
+	private static final long SHUTDOWN_SECONDS = 10;
+	// Seconds to wait for a worker to print its port after it is started
+	private static final long STARTUP_SECONDS = 60;
+	// Milliseconds between checks of whether a starting worker has printed its port
+	private static final long STARTUP_POLL_MILLIS = 10;
+
+	private int width, height;
+	private Point start, end;
+	// Left edge of each shard column and top edge of each shard row, followed by the maze width or height
+	private int[] columnEdges, rowEdges;
+	private Shard[] shards;
+	// Maze file written by launch(Grid), deleted when closed
+	private File temporaryFile;
+	// Runs the requests sent to different shards at the same time
+	private ExecutorService executor;
+
+	// Overlay graph, nodes are the border tiles of every shard in shard order
+	private int[] nodeXs, nodeYs, nodeShards;
+	// Edges across shard edges of each node are stored from edgeOffsets[node] up to edgeOffsets[node + 1]. Edges
+	// inside a shard are the distances its Shard keeps.
+	private int[] edgeOffsets;
+	private int[] edgeTargets;
+	private int[] edgeWeights;
+
+	/**
+	 * Splits a maze file into shards and starts a worker process for each of them.
+	 * @param mazeFile a maze file in MazeGenerator's binary format
+	 * @param columns the number of shards across the maze
+	 * @param rows the number of shards down the maze
+	 * @return a pathfinder that must be closed to stop the workers
+	 * @throws IllegalArgumentException if mazeFile is null, isn't in the binary format, or a shard would be empty
+	 * @throws IOException if the file can't be read or a worker can't be started or doesn't start in time
+	 */
+	public static ShardedPathfinding launch(File mazeFile, int columns, int rows)
+		throws IOException
+	{
+		if (mazeFile == null) throw new IllegalArgumentException("null parameter");
+		return new ShardedPathfinding(mazeFile, columns, rows, null);
+	}
+
+	/**
+	 * Writes a maze to a temporary file in the binary format, splits it into shards and starts a worker process
+	 * for each of them. The file is deleted when the pathfinder is closed.
+	 * @param maze the Grid to be solved, such as a Maze
+	 * @param columns the number of shards across the maze
+	 * @param rows the number of shards down the maze
+	 * @return a pathfinder that must be closed to stop the workers
+	 * @throws IllegalArgumentException if maze is null or a shard would be empty
+	 * @throws IOException if the file can't be written or a worker can't be started or doesn't start in time
+	 */
+	public static ShardedPathfinding launch(Grid maze, int columns, int rows)
+		throws IOException
+	{
+		if (maze == null) throw new IllegalArgumentException("null parameter");
+
+		File file = File.createTempFile("shards", ".bin");
+		try {
+			MappedGrid.write(maze, file);
+			return new ShardedPathfinding(file, columns, rows, file);
+		} catch (IOException | RuntimeException err) {
+			file.delete();
+			throw err;
+		}
+	}
+
+	/**
+	 * Solves a binary maze file with sharded workers and prints the path length and timings.
+	 * <p> Usage: java ShardedPathfinding mazeFile columns rows
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args)
+		throws IOException
+	{
+		if (args.length < 3) {
+			System.out.println("Usage: java ShardedPathfinding mazeFile columns rows");
+			return;
+		}
+
+		long launchStart = System.nanoTime();
+		try (ShardedPathfinding pathfinding = launch(new File(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]))) {
+			long searchStart = System.nanoTime();
+			Path path = pathfinding.findPath();
+			long searchEnd = System.nanoTime();
+			System.out.println(pathfinding.getBorderTileCount() + " border tiles, " + pathfinding.getEdgeCount() + " edges between shards");
+			System.out.println(path == null ? "No path" : "Path length: " + path.size());
+			System.out.println("Launch time: " + (searchStart - launchStart) / 1000000 + " ms");
+			System.out.println("Search time: " + (searchEnd - searchStart) / 1000000 + " ms");
+		}
+	}
+
+	// Starts the workers and builds the overlay graph, stopping any started workers if something fails
+	private ShardedPathfinding(File mazeFile, int columns, int rows, File temporaryFile)
+		throws IOException
+	{
+		MappedGrid maze = new MappedGrid(mazeFile);
+		width = maze.getWidth();
+		height = maze.getHeight();
+		if (columns < 1 || rows < 1 || columns > width || rows > height) {
+			throw new IllegalArgumentException("every shard must hold at least one tile");
+		}
+
+		start = maze.getStart();
+		end = maze.getEnd();
+		columnEdges = splitEdges(width, columns);
+		rowEdges = splitEdges(height, rows);
+		this.temporaryFile = temporaryFile;
+		shards = new Shard[columns * rows];
+		executor = Executors.newFixedThreadPool(shards.length, runnable -> {
+			Thread thread = new Thread(runnable, "shard request");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+			String classPath = new File(ShardWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+			// Start every worker before waiting for any so they measure their borders at the same time
+			for (int row = 0; row < rows; row++) {
+				for (int column = 0; column < columns; column++) {
+					Shard shard = new Shard(columnEdges[column], rowEdges[row], columnEdges[column + 1], rowEdges[row + 1]);
+					shards[row * columns + column] = shard;
+					shard.process = new ProcessBuilder(java, "-cp", classPath, "ShardWorker", mazeFile.getPath(),
+						Integer.toString(shard.left), Integer.toString(shard.top), Integer.toString(shard.right),
+						Integer.toString(shard.bottom))
+						.redirectError(ProcessBuilder.Redirect.INHERIT)
+						.start();
+				}
+			}
+
+			List<CompletableFuture<Void>> loads = new ArrayList<>();
+			for (Shard shard : shards) {
+				loads.add(supply(() -> {
+					shard.connect();
+					shard.loadBorders();
+					return null;
+				}));
+			}
+			await(loads);
+			buildOverlay();
+		} catch (URISyntaxException err) {
+			close();
+			throw new IOException("Can't find the class path of ShardWorker", err);
+		} catch (IOException | RuntimeException err) {
+			close();
+			throw err;
+		}
+	}
+
+	/**
+	 * Returns the number of border tiles in the overlay graph
+	 * @return border tile count
+	 */
+	public int getBorderTileCount()
+	{
+		return nodeXs.length;
+	}
+
+	/**
+	 * Returns the number of edges between border tiles of different shards, counting each direction
+	 * @return edge count
+	 */
+	public int getEdgeCount()
+	{
+		return edgeTargets.length;
+	}
+
+	/**
+	 * Returns the shortest path between the start and end of the maze
+	 * @return the closest path between the two points in the maze. Returns null if there is no possible path.
+	 * @throws IOException if a worker can't be reached
+	 */
+	public Path findPath()
+		throws IOException
+	{
+		return findPath(start, end);
+	}
+
+	/**
+	 * Returns the shortest path between two tiles of the maze
+	 * @param from the tile the path starts at
+	 * @param to the tile the path ends at
+	 * @return the closest path between the two points in the maze. Returns null if either tile is outside the maze,
+	 * is a wall, or there is no possible path.
+	 * @throws IllegalArgumentException if a parameter is null
+	 * @throws IOException if a worker can't be reached
+	 */
+	public Path findPath(Point from, Point to)
+		throws IOException
+	{
+		if (from == null || to == null) throw new IllegalArgumentException("null parameter");
+		if (!isInside(from.x, from.y) || !isInside(to.x, to.y)) return null;
+
+		// Distances from each tile to the borders of its shard, and to the other tile if they share a shard
+		int fromShard = findShard(from.x, from.y), toShard = findShard(to.x, to.y);
+		CompletableFuture<int[]> fromRequest = supply(() -> shards[fromShard].requestDistances(from.x, from.y, to.x, to.y));
+		CompletableFuture<int[]> toRequest = supply(() -> shards[toShard].requestDistances(to.x, to.y, from.x, from.y));
+		await(List.of(fromRequest, toRequest));
+		int[] fromDistances = fromRequest.join();
+		int[] toDistances = toRequest.join();
+
+		int[] route = searchOverlay(fromShard, fromDistances, toShard, toDistances);
+		if (route == null) return null;
+
+		// Each pair of route nodes in the same shard is a segment that shard fills in, pairs in different
+		// shards are single moves across a shard edge
+		int sourceNode = nodeXs.length, targetNode = nodeXs.length + 1;
+		List<CompletableFuture<int[]>> segments = new ArrayList<>();
+		for (int i = 0; i + 1 < route.length; i++) {
+			int first = route[i], second = route[i + 1];
+			int firstShard = first == sourceNode ? fromShard : nodeShards[first];
+			int secondShard = second == targetNode ? toShard : nodeShards[second];
+			if (firstShard != secondShard) continue;
+
+			int firstX = first == sourceNode ? from.x : nodeXs[first], firstY = first == sourceNode ? from.y : nodeYs[first];
+			int secondX = second == targetNode ? to.x : nodeXs[second], secondY = second == targetNode ? to.y : nodeYs[second];
+			segments.add(supply(() -> shards[firstShard].requestPath(firstX, firstY, secondX, secondY)));
+		}
+		await(segments);
+
+		Path path = new Path();
+		path.push(from);
+		int segment = 0;
+		for (int i = 0; i + 1 < route.length; i++) {
+			int first = route[i], second = route[i + 1];
+			int firstShard = first == sourceNode ? fromShard : nodeShards[first];
+			int secondShard = second == targetNode ? toShard : nodeShards[second];
+			if (firstShard != secondShard) {
+				path.push(nodeXs[second], nodeYs[second]);
+				continue;
+			}
+
+			// Segment tiles are x and y pairs, the first one is already on the path
+			int[] tiles = segments.get(segment++).join();
+			for (int tile = 2; tile < tiles.length; tile += 2) {
+				path.push(tiles[tile], tiles[tile + 1]);
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Shuts down every worker and deletes the temporary maze file, if there is one.
+	 * Workers that don't exit in time are killed.
+	 */
+	@Override
+	public void close()
+	{
+		for (Shard shard : shards) {
+			if (shard != null) shard.shutdown();
+		}
+		for (Shard shard : shards) {
+			if (shard != null) shard.waitFor();
+		}
+		executor.shutdownNow();
+		if (temporaryFile != null) {
+			temporaryFile.delete();
+			temporaryFile = null;
+		}
+	}
+
+	/*
+	 * Dijkstra's algorithm on the overlay graph with two extra nodes for the tiles being searched between.
+	 * Each border tile's distances inside its shard are asked for when the tile is first settled.
+	 *
+	 * @return the nodes of the route from the source node to the target node, null if there is none
+	 */
+	private int[] searchOverlay(int fromShard, int[] fromDistances, int toShard, int[] toDistances)
+		throws IOException
+	{
+		int sourceNode = nodeXs.length, targetNode = nodeXs.length + 1;
+		int[] distances = new int[nodeXs.length + 2];
+		int[] parents = new int[nodeXs.length + 2];
+		Arrays.fill(distances, Integer.MAX_VALUE);
+
+		// Entries hold the distance in the high bits and the node in the low bits
+		LongHeap queue = new LongHeap();
+		distances[sourceNode] = 0;
+		queue.add(pack(0, sourceNode));
+		while (!queue.isEmpty()) {
+			long entry = queue.poll();
+			int distance = (int)(entry >>> 32);
+			int node = (int)entry;
+			// Skip entries that were replaced by a shorter distance
+			if (distance > distances[node]) continue;
+			if (node == targetNode) break;
+
+			if (node == sourceNode) {
+				// The first entry of a distance reply is the distance to the other tile, then one for each border
+				int first = shards[fromShard].firstNode;
+				relax(distances, parents, queue, node, targetNode, fromDistances[0]);
+				for (int border = 1; border < fromDistances.length; border++) {
+					relax(distances, parents, queue, node, first + border - 1, fromDistances[border]);
+				}
+				continue;
+			}
+
+			for (int edge = edgeOffsets[node]; edge < edgeOffsets[node + 1]; edge++) {
+				relax(distances, parents, queue, node, edgeTargets[edge], distance + edgeWeights[edge]);
+			}
+			Shard shard = shards[nodeShards[node]];
+			int[] borderDistances = shard.getBorderDistances(node - shard.firstNode);
+			for (int border = 1; border < borderDistances.length; border++) {
+				if (borderDistances[border] > 0) {
+					relax(distances, parents, queue, node, shard.firstNode + border - 1, distance + borderDistances[border]);
+				}
+			}
+			if (nodeShards[node] == toShard) {
+				int toDistance = toDistances[node - shards[toShard].firstNode + 1];
+				if (toDistance != -1) relax(distances, parents, queue, node, targetNode, distance + toDistance);
+			}
+		}
+
+		if (distances[targetNode] == Integer.MAX_VALUE) return null;
+
+		int length = 1;
+		for (int node = targetNode; node != sourceNode; node = parents[node]) {
+			length++;
+		}
+		int[] route = new int[length];
+		for (int node = targetNode, i = length - 1; i >= 0; node = parents[node], i--) {
+			route[i] = node;
+		}
+		return route;
+	}
+
+	// Lowers the distance of a node if it is shorter through the parent, -1 distances are unreachable
+	private static void relax(int[] distances, int[] parents, LongHeap queue, int parent, int node, int distance)
+	{
+		if (distance < 0 || distance >= distances[node]) return;
+		distances[node] = distance;
+		parents[node] = parent;
+		queue.add(pack(distance, node));
+	}
+
+	// Joins the border tiles of every shard into the overlay graph by the moves across shard edges
+	private void buildOverlay()
+	{
+		int nodeCount = 0;
+		for (Shard shard : shards) {
+			shard.firstNode = nodeCount;
+			nodeCount += shard.borderXs.length;
+		}
+
+		nodeXs = new int[nodeCount];
+		nodeYs = new int[nodeCount];
+		nodeShards = new int[nodeCount];
+		LongIntMap tileNodes = new LongIntMap(nodeCount);
+		for (int i = 0; i < shards.length; i++) {
+			Shard shard = shards[i];
+			for (int border = 0; border < shard.borderXs.length; border++) {
+				int node = shard.firstNode + border;
+				nodeXs[node] = shard.borderXs[border];
+				nodeYs[node] = shard.borderYs[border];
+				nodeShards[node] = i;
+				tileNodes.put((long)nodeYs[node] * width + nodeXs[node], node);
+			}
+		}
+
+		// Count the edges of each node first so they can be stored in place
+		edgeOffsets = new int[nodeCount + 1];
+		for (int node = 0; node < nodeCount; node++) {
+			edgeOffsets[node + 1] = countCrossings(node, tileNodes);
+		}
+		for (int node = 0; node < nodeCount; node++) {
+			edgeOffsets[node + 1] += edgeOffsets[node];
+		}
+
+		edgeTargets = new int[edgeOffsets[nodeCount]];
+		edgeWeights = new int[edgeOffsets[nodeCount]];
+		int[] edgeCounts = new int[nodeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			for (int direction = 0; direction < 4; direction++) {
+				int target = findCrossing(node, direction, tileNodes);
+				if (target != -1) addEdge(edgeCounts, node, target, 1);
+			}
+		}
+	}
+
+	// Returns the number of border tiles of other shards next to a node
+	private int countCrossings(int node, LongIntMap tileNodes)
+	{
+		int count = 0;
+		for (int direction = 0; direction < 4; direction++) {
+			if (findCrossing(node, direction, tileNodes) != -1) count++;
+		}
+		return count;
+	}
+
+	// Returns the node of another shard one move from a node in a direction, -1 if there isn't one
+	private int findCrossing(int node, int direction, LongIntMap tileNodes)
+	{
+		int x = nodeXs[node] + DIRECTION_X[direction], y = nodeYs[node] + DIRECTION_Y[direction];
+		if (!isInside(x, y)) return -1;
+		int target = tileNodes.get((long)y * width + x, -1);
+		return target != -1 && nodeShards[target] != nodeShards[node] ? target : -1;
+	}
+
+	// Stores the next edge of a node
+	private void addEdge(int[] edgeCounts, int node, int target, int weight)
+	{
+		int edge = edgeOffsets[node] + edgeCounts[node]++;
+		edgeTargets[edge] = target;
+		edgeWeights[edge] = weight;
+	}
+
+	// Returns the index of the shard holding a tile
+	private int findShard(int x, int y)
+	{
+		return findBand(rowEdges, y) * (columnEdges.length - 1) + findBand(columnEdges, x);
+	}
+
+	// Returns the band of the edges that holds a position
+	private static int findBand(int[] edges, int position)
+	{
+		int band = Arrays.binarySearch(edges, position);
+		return band >= 0 ? band : -band - 2;
+	}
+
+	// Returns the first position of each of count equal bands over a length, followed by the length
+	private static int[] splitEdges(int length, int count)
+	{
+		int[] edges = new int[count + 1];
+		for (int i = 0; i <= count; i++) {
+			edges[i] = (int)((long)length * i / count);
+		}
+		return edges;
+	}
+
+	// Returns whether the position is in the maze
+	private boolean isInside(int x, int y)
+	{
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	// Runs a shard request on the executor, wrapping IOExceptions so they can cross into the future
+	private <T> CompletableFuture<T> supply(IOSupplier<T> request)
+	{
+		Supplier<T> supplier = () -> {
+			try {
+				return request.get();
+			} catch (IOException err) {
+				throw new UncheckedIOException(err);
+			}
+		};
+		return CompletableFuture.supplyAsync(supplier, executor);
+	}
+
+	// Waits for every request to finish, rethrowing the first failure
+	private static void await(List<? extends CompletableFuture<?>> requests)
+		throws IOException
+	{
+		try {
+			CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).join();
+		} catch (CompletionException err) {
+			if (err.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException)err.getCause()).getCause();
+			if (err.getCause() instanceof RuntimeException) throw (RuntimeException)err.getCause();
+			throw err;
+		}
+	}
+
+	// Packs a distance and a node into one queue entry
+	private static long pack(int distance, int node)
+	{
+		return ((long)distance << 32) | node;
+	}
+
+	// A request to a worker that can throw an IOException
+	private interface IOSupplier<T>
+	{
+		T get() throws IOException;
+	}
+
+	// A worker process and the connection to it. Requests are synchronized so each shard answers one at a time.
+	private static class Shard
+	{
+		private final int left, top, right, bottom;
+		private Process process;
+		private Socket socket;
+		private DataInputStream input;
+		private DataOutputStream output;
+
+		private int[] borderXs, borderYs;
+		// Distance reply from each border tile to the others, null until a search first needs it
+		private int[][] borderDistances;
+		// Overlay node of the first border tile
+		private int firstNode;
+
+		private Shard(int left, int top, int right, int bottom)
+		{
+			this.left = left;
+			this.top = top;
+			this.right = right;
+			this.bottom = bottom;
+		}
+
+		// Waits for the worker to print its port and connects to it, killing the worker if it takes too long
+		private synchronized void connect()
+			throws IOException
+		{
+			// readLine can't be interrupted, so wait until the line has arrived or the worker has exited first
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(STARTUP_SECONDS);
+			while (!reader.ready() && process.isAlive()) {
+				if (System.nanoTime() - deadline > 0) {
+					process.destroyForcibly();
+					throw new IOException("Shard worker for " + left + "," + top + " to " + right + "," + bottom + " didn't start in " + STARTUP_SECONDS + " seconds");
+				}
+				try {
+					Thread.sleep(STARTUP_POLL_MILLIS);
+				} catch (InterruptedException err) {
+					process.destroyForcibly();
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for a shard worker to start");
+				}
+			}
+			String line = reader.readLine();
+			if (line == null || !line.startsWith("PORT ")) {
+				throw new IOException("Shard worker for " + left + "," + top + " to " + right + "," + bottom + " didn't start");
+			}
+
+			socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(line.substring(5).trim()));
+			socket.setTcpNoDelay(true);
+			input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		private synchronized void loadBorders()
+			throws IOException
+		{
+			output.writeInt(ShardWorker.BORDERS);
+			output.flush();
+
+			int borderCount = input.readInt();
+			borderXs = new int[borderCount];
+			borderYs = new int[borderCount];
+			for (int i = 0; i < borderCount; i++) {
+				borderXs[i] = input.readInt();
+				borderYs[i] = input.readInt();
+			}
+			borderDistances = new int[borderCount][];
+		}
+
+		// Returns the distance reply from a border tile, asking the worker the first time
+		private synchronized int[] getBorderDistances(int border)
+			throws IOException
+		{
+			if (borderDistances[border] == null) {
+				borderDistances[border] = requestDistances(borderXs[border], borderYs[border], -1, -1);
+			}
+			return borderDistances[border];
+		}
+
+		// Returns the distance to the target followed by the distance to each border tile
+		private synchronized int[] requestDistances(int x, int y, int targetX, int targetY)
+			throws IOException
+		{
+			writeRequest(ShardWorker.DISTANCES, x, y, targetX, targetY);
+			int[] distances = new int[borderXs.length + 1];
+			for (int i = 0; i < distances.length; i++) {
+				distances[i] = input.readInt();
+			}
+			return distances;
+		}
+
+		// Returns the x and y of each tile of a shortest path inside the shard
+		private synchronized int[] requestPath(int fromX, int fromY, int toX, int toY)
+			throws IOException
+		{
+			writeRequest(ShardWorker.PATH, fromX, fromY, toX, toY);
+			int[] tiles = new int[input.readInt() * 2];
+			if (tiles.length == 0) throw new IOException("Shard worker lost a segment of the route");
+			for (int i = 0; i < tiles.length; i++) {
+				tiles[i] = input.readInt();
+			}
+			return tiles;
+		}
+
+		private void writeRequest(int request, int a, int b, int c, int d)
+			throws IOException
+		{
+			output.writeInt(request);
+			output.writeInt(a);
+			output.writeInt(b);
+			output.writeInt(c);
+			output.writeInt(d);
+			output.flush();
+		}
+
+		// Tells the worker to exit and closes the connection, killing workers that never connected
+		private synchronized void shutdown()
+		{
+			if (socket == null && process != null) process.destroyForcibly();
+			try {
+				if (output != null) {
+					output.writeInt(ShardWorker.SHUTDOWN);
+					output.flush();
+				}
+			} catch (IOException err) {
+				// The worker is already gone
+			}
+			try {
+				if (socket != null) socket.close();
+			} catch (IOException err) {
+				// Nothing left to release
+			}
+			socket = null;
+			output = null;
+		}
+
+		// Waits for the worker process to exit, killing it if it takes too long
+		private void waitFor()
+		{
+			if (process == null) return;
+			try {
+				if (!process.waitFor(SHUTDOWN_SECONDS, TimeUnit.SECONDS)) process.destroyForcibly();
+			} catch (InterruptedException err) {
+				process.destroyForcibly();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
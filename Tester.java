@@ -3,10 +3,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 
 import java.util.*;
-import java.awt.*;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.lang.*;
 import java.io.*;
 import java.util.function.*;
+import java.util.concurrent.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.channels.Channels;
 
 public class Tester
 {
@@ -218,4 +223,666 @@ public class Tester
 		Maze maze4 = new Maze(validMazeFiles[3]);
 		assertEquals(maze4Path, AstarPathfinding.findPath(maze4), "must return shortest path for exampleMazes/validMaze4.txt");
 	}
+	
+	@Test
+	void testAstarPathfindingAsync()
+		throws Exception
+	{
+		assertThrows(IllegalArgumentException.class, ()->{AstarPathfinding.findPathAsync(null);}, "null param");
+		
+		Maze maze3 = new Maze(validMazeFiles[2]);
+		assertEquals(maze3Path, AstarPathfinding.findPathAsync(maze3).get(), "async path should be the same as findPath");
+		assertEquals(null, AstarPathfinding.findPathAsync(new Maze(impossibleMazeFile)).get(), "impossible maze should complete with null");
+		
+		// Progress is reported at the interval and once more at the end with the final count
+		List<Integer> reports = new ArrayList<>();
+		int[] bestF = new int[1];
+		AstarPathfinding.findPath(maze3, (nodes, f)->{ reports.add(nodes); bestF[0] = f; }, 5);
+		assertEquals(List.of(5, 10, 15, 20, 25, 26), reports, "progress should be reported every 5 tiles and at the end");
+		assertEquals(maze3Path.size() - 1, bestF[0], "final F value should be the path's length");
+		
+		// A search on a large open maze is dropped as soon as its future is cancelled
+		File mazeFile = File.createTempFile("async", ".txt");
+		mazeFile.deleteOnExit();
+		new MazeGenerator(MazeGenerator.Topology.RANDOM_OBSTACLES, 500, 500, 1).write(mazeFile, MazeGenerator.Format.TEXT);
+		Maze largeMaze = new Maze(mazeFile);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			List<Integer> largeReports = new ArrayList<>();
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch cancelled = new CountDownLatch(1);
+			CompletableFuture<Path> future = AstarPathfinding.findPathAsync(largeMaze, executor, (nodes, f)->{
+				largeReports.add(nodes);
+				// Hold the search at its first report until the test has cancelled it
+				started.countDown();
+				try {
+					cancelled.await();
+				} catch (InterruptedException err) {
+					Thread.currentThread().interrupt();
+				}
+			}, 100);
+			started.await();
+			future.cancel(true);
+			cancelled.countDown();
+			assertTrue(future.isCancelled(), "future should be cancelled");
+			
+			// The executor's only thread must be free again for the next query
+			assertEquals(maze3Path, AstarPathfinding.findPathAsync(maze3, executor, null, 0).get(10, TimeUnit.SECONDS), "next query should run after cancelling");
+			assertTrue(largeReports.get(largeReports.size() - 1) <= 512, "cancelled search should stop at the next check");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	// MazeGraph class tests
+	@Test
+	void testMazeGraph()
+		throws FileNotFoundException
+	{
+		assertThrows(IllegalArgumentException.class, ()->{ new MazeGraph(null); }, "null param");
+		
+		MazeGraph impossibleGraph = new MazeGraph(new Maze(impossibleMazeFile));
+		assertEquals(null, impossibleGraph.findPath(), "impossible maze should return null path");
+		
+		// validMaze3 has no loops, so every tile is filled and queries are answered while attaching the endpoints
+		MazeGraph maze3Graph = new MazeGraph(new Maze(validMazeFiles[2]));
+		assertEquals(0, maze3Graph.getNodeCount(), "a maze without loops should have no nodes");
+		assertEquals(maze3Path, maze3Graph.findPath(), "must return shortest path for exampleMazes/validMaze3.txt");
+		
+		Maze maze5 = new Maze(validMazeFiles[4]);
+		MazeGraph maze5Graph = new MazeGraph(maze5);
+		assertTrue(maze5Graph.getNodeCount() < maze5.getWidth() * maze5.getHeight() / 4, "dead ends and corridors should be removed");
+		assertEquals(25, maze5Graph.findPath().size(), "must return shortest path for exampleMazes/validMaze5.txt");
+		
+		// One graph answers queries between any two tiles
+		assertThrows(IllegalArgumentException.class, ()->{ maze5Graph.findPath(null, new Point(0, 0)); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ maze5Graph.findPath(new Point(-1, 0), new Point(0, 0)); }, "tile outside the maze");
+		for (int y = 0; y < maze5.getHeight(); y++) {
+			for (int x = 0; x < maze5.getWidth(); x++) {
+				if (!maze5.isPassable(x, y)) continue;
+				Point from = new Point(x, y);
+				int distance = new DistanceField(maze5, maze5.getEnd()).getDistance(x, y);
+				Path path = maze5Graph.findPath(from, maze5.getEnd());
+				assertEquals(distance == -1 ? -1 : distance + 1, path == null ? -1 : path.size(), "path from " + from + " to the end");
+				assertEquals(path, maze5Graph.findPath(from, maze5.getEnd()), "repeated queries should give the same path");
+			}
+		}
+		
+		assertEquals(maze1Path.size(), new MazeGraph(new Maze(validMazeFiles[0])).findPath().size(), "must return shortest path for exampleMazes/validMaze1.txt");
+		assertEquals(maze4Path.size(), new MazeGraph(new Maze(validMazeFiles[3])).findPath().size(), "must return shortest path for exampleMazes/validMaze4.txt");
+	}
+	
+	// MazeGenerator class tests
+	@Test
+	void testMazeGenerator()
+		throws IOException
+	{
+		assertThrows(IllegalArgumentException.class, ()->{ new MazeGenerator(null, 10, 10, 0); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ new MazeGenerator(MazeGenerator.Topology.PRIM, 4, 10, 0); }, "too small");
+		
+		File mazeFile = File.createTempFile("generated", ".txt");
+		mazeFile.deleteOnExit();
+		for (MazeGenerator.Topology topology : MazeGenerator.Topology.values()) {
+			MazeGenerator generator = new MazeGenerator(topology, 31, 20, 42);
+			
+			// Same seed must give the same maze
+			ByteArrayOutputStream first = new ByteArrayOutputStream();
+			ByteArrayOutputStream second = new ByteArrayOutputStream();
+			generator.write(first, MazeGenerator.Format.TEXT);
+			generator.write(second, MazeGenerator.Format.TEXT);
+			assertArrayEquals(first.toByteArray(), second.toByteArray(), topology + " should be reproducible");
+			
+			// Output must be readable by Maze
+			generator.write(mazeFile, MazeGenerator.Format.TEXT);
+			Maze maze = new Maze(mazeFile);
+			assertEquals(31, maze.getWidth(), topology + " width");
+			assertEquals(20, maze.getHeight(), topology + " height");
+			
+			// Binary format is 32 header bytes plus one long per row for this width
+			ByteArrayOutputStream binary = new ByteArrayOutputStream();
+			generator.write(binary, MazeGenerator.Format.BINARY);
+			assertEquals(32 + 20 * 8, binary.size(), topology + " binary size");
+		}
+		
+		// Perfect mazes always connect the start and end
+		MazeGenerator.Topology[] perfect = {MazeGenerator.Topology.RECURSIVE_BACKTRACKER, MazeGenerator.Topology.PRIM, MazeGenerator.Topology.ELLER};
+		for (MazeGenerator.Topology topology : perfect) {
+			for (int seed = 0; seed < 20; seed++) {
+				new MazeGenerator(topology, 25, 17, seed).write(mazeFile, MazeGenerator.Format.TEXT);
+				assertNotEquals(null, new MazeGraph(new Maze(mazeFile)).findPath(), topology + " seed " + seed + " should be solvable");
+			}
+		}
+	}
+	
+	// LongIntMap class tests
+	@Test
+	void testLongIntMap()
+	{
+		LongIntMap map = new LongIntMap();
+		for (long key = -500; key < 500; key++) {
+			map.put(key * 7919, (int)key);
+		}
+		map.put(7919, 42);
+		
+		assertEquals(1000, map.size(), "replacing a key shouldn't add an entry");
+		assertEquals(42, map.get(7919, -1), "value should be replaced");
+		assertEquals(-500, map.get(-500 * 7919, 0), "negative keys should be stored");
+		assertEquals(-1, map.get(3, -1), "missing key should return the missing value");
+		assertFalse(map.containsKey(3), "missing key shouldn't be contained");
+		assertThrows(IllegalArgumentException.class, ()->{ map.put(Long.MIN_VALUE, 0); }, "reserved key");
+		
+		map.clear();
+		assertEquals(0, map.size(), "cleared map should be empty");
+		assertFalse(map.containsKey(7919), "cleared map shouldn't contain keys");
+	}
+	
+	// LongHeap class tests
+	@Test
+	void testLongHeap()
+	{
+		LongHeap heap = new LongHeap(4);
+		Random random = new Random(7);
+		long[] entries = new long[1000];
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = random.nextLong();
+			heap.add(entries[i]);
+		}
+		Arrays.sort(entries);
+		
+		assertEquals(1000, heap.size(), "heap should grow past its expected size");
+		for (long entry : entries) {
+			assertEquals(entry, heap.poll(), "entries should come out smallest first");
+		}
+		assertTrue(heap.isEmpty(), "polled heap should be empty");
+		assertThrows(NoSuchElementException.class, ()->{ heap.poll(); }, "empty heap");
+		
+		heap.add(3);
+		heap.clear();
+		assertTrue(heap.isEmpty(), "cleared heap should be empty");
+	}
+	
+	// DistanceField class tests
+	@Test
+	void testDistanceField()
+		throws FileNotFoundException
+	{
+		Maze maze3 = new Maze(validMazeFiles[2]);
+		assertThrows(IllegalArgumentException.class, ()->{ new DistanceField(null, new Point(0, 0)); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ new DistanceField(maze3, new Point(1, 1)); }, "wall target");
+		
+		DistanceField distances = new DistanceField(maze3, maze3.getEnd());
+		assertEquals(maze3Path.size() - 1, distances.getDistance(0, 0), "distance from start should follow the corridor");
+		assertEquals(0, distances.getDistance(2, 2), "target should have no distance");
+		assertEquals(-1, distances.getDistance(1, 1), "walls can't reach the target");
+		assertEquals(-1, distances.getDistance(-1, 0), "out of bounds can't reach the target");
+	}
+	
+	// ConnectedComponents class tests
+	@Test
+	void testConnectedComponents()
+		throws FileNotFoundException
+	{
+		assertThrows(IllegalArgumentException.class, ()->{ new ConnectedComponents(null); }, "null param");
+		
+		Maze impossibleMaze = new Maze(impossibleMazeFile);
+		ConnectedComponents components = new ConnectedComponents(impossibleMaze);
+		assertEquals(2, components.getComponentCount(), "end is walled off from the rest of the maze");
+		assertFalse(components.isConnected(impossibleMaze.getStart(), impossibleMaze.getEnd()), "impossible maze isn't connected");
+		assertEquals(-1, components.getComponent(6, 1), "walls have no component");
+		
+		Maze maze1 = new Maze(validMazeFiles[0]);
+		assertTrue(new ConnectedComponents(maze1).isConnected(maze1.getStart(), maze1.getEnd()), "open maze is connected");
+	}
+	
+	// CooperativePathfinding class tests
+	@Test
+	void testCooperativePathfinding()
+		throws IOException
+	{
+		assertThrows(IllegalArgumentException.class, ()->{ new CooperativePathfinding(null); }, "null param");
+		
+		// Two agents swapping ends of validMaze3's corridor, the second has to step into a side branch to let the first pass
+		Maze maze3 = new Maze(validMazeFiles[2]);
+		CooperativePathfinding corridor = new CooperativePathfinding(maze3);
+		List<Point> corridorStarts = List.of(new Point(0, 0), new Point(2, 2));
+		List<Point> corridorGoals = List.of(new Point(2, 2), new Point(0, 0));
+		List<Path> swapped = corridor.findPaths(corridorStarts, corridorGoals);
+		assertEquals(maze3Path, swapped.get(0), "first agent has priority");
+		assertTrue(swapped.get(1).size() > maze3Path.size(), "second agent must wait for the first to pass");
+		corridor.setMaxDelay(0);
+		assertEquals(null, corridor.findPaths(corridorStarts, corridorGoals).get(1), "second agent can't pass without a delay");
+		assertThrows(IllegalArgumentException.class, ()->{ corridor.findPaths(List.of(new Point(0, 0), new Point(0, 0)), List.of(new Point(2, 2), new Point(2, 2))); }, "shared start");
+		assertThrows(IllegalArgumentException.class, ()->{ corridor.findPaths(List.of(new Point(1, 1)), List.of(new Point(2, 2))); }, "wall start");
+		
+		// Agents crossing an open maze in both directions
+		Maze maze2 = new Maze(validMazeFiles[1]);
+		CooperativePathfinding planner = new CooperativePathfinding(maze2);
+		List<Point> starts = new ArrayList<>();
+		List<Point> goals = new ArrayList<>();
+		for (int y = 0; y < 16; y++) {
+			starts.add(new Point(0, y));
+			goals.add(new Point(23, 15 - y));
+			starts.add(new Point(23, y));
+			goals.add(new Point(0, y));
+		}
+		List<Path> paths = planner.findPaths(starts, goals);
+		
+		// No two agents share a tile at the same time
+		Map<String, Integer> occupied = new HashMap<>();
+		for (int agent = 0; agent < paths.size(); agent++) {
+			assertNotEquals(null, paths.get(agent), "agent " + agent + " should find a path");
+			Iterator<Point> itr = paths.get(agent).iterator();
+			assertEquals(starts.get(agent), itr.next(), "agent " + agent + " starts at its start");
+			Point last = starts.get(agent);
+			for (int time = 1; itr.hasNext(); time++) {
+				last = itr.next();
+				Integer other = occupied.put(last + "@" + time, agent);
+				assertEquals(null, other, "agents " + other + " and " + agent + " collide at " + last);
+			}
+			assertEquals(goals.get(agent), last, "agent " + agent + " ends at its goal");
+		}
+		
+		// Forgetting distance fields only costs time, the plans stay the same
+		assertThrows(IllegalArgumentException.class, ()->{ planner.setDistanceFieldLimit(0); }, "no distance fields");
+		planner.setDistanceFieldLimit(1);
+		assertEquals(paths, planner.findPaths(starts, goals), "plans shouldn't depend on the remembered distance fields");
+		
+		// Opening the wall between two rooms joins their components and changes the distances to the goal
+		File roomsFile = File.createTempFile("rooms", ".txt");
+		roomsFile.deleteOnExit();
+		Files.writeString(roomsFile.toPath(), "1*#*2\n**#**\n**#**");
+		Maze rooms = new Maze(roomsFile);
+		CooperativePathfinding roomPlanner = new CooperativePathfinding(rooms);
+		List<Path> walledOff = roomPlanner.findPaths(List.of(new Point(0, 0), new Point(4, 2)), List.of(new Point(4, 0), new Point(4, 0)));
+		assertNull(walledOff.get(0), "the goal is behind the wall");
+		assertEquals(3, walledOff.get(1).size(), "agent in the goal's room should reach it");
+		rooms.apply(MazePatch.parse("2 1 *"));
+		Path opened = roomPlanner.findPaths(List.of(new Point(0, 0)), List.of(new Point(4, 0))).get(0);
+		assertNotNull(opened, "planner should follow the maze's patches");
+		assertEquals(7, opened.size(), "path should go through the opened wall");
+		rooms.removeChangeListener(roomPlanner);
+	}
+	
+	// Grid implementation tests
+	@Test
+	void testGridBackends()
+		throws IOException
+	{
+		assertThrows(IllegalArgumentException.class, ()->{ new ByteGrid(null); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ new BitsetGrid(null); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ new MappedGrid(null); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ new MappedGrid(validMazeFiles[0]); }, "text file isn't binary");
+		
+		File binaryFile = File.createTempFile("grid", ".bin");
+		binaryFile.deleteOnExit();
+		for (File mazeFile : validMazeFiles) {
+			Maze maze = new Maze(mazeFile);
+			MappedGrid.write(maze, binaryFile);
+			Grid[] grids = {new ByteGrid(maze), new BitsetGrid(maze), new MappedGrid(binaryFile)};
+			Path mazePath = AstarPathfinding.findPath(maze);
+			for (Grid grid : grids) {
+				String name = grid.getClass().getName() + " of " + mazeFile;
+				assertEquals(maze.getWidth(), grid.getWidth(), name + " width");
+				assertEquals(maze.getHeight(), grid.getHeight(), name + " height");
+				assertEquals(maze.getStart(), grid.getStart(), name + " start");
+				assertEquals(maze.getEnd(), grid.getEnd(), name + " end");
+				for (int y = -1; y <= maze.getHeight(); y++) {
+					for (int x = -1; x <= maze.getWidth(); x++) {
+						assertEquals(maze.isPassable(x, y), grid.isPassable(x, y), name + " tile (" + x + ", " + y + ")");
+					}
+				}
+				assertEquals(mazePath, AstarPathfinding.findPath(grid), name + " should give the same path as the maze");
+			}
+		}
+		
+		// A procedural grid has the same layout as the file generated with the same seed
+		File mazeFile = File.createTempFile("procedural", ".txt");
+		mazeFile.deleteOnExit();
+		MazeGenerator generator = new MazeGenerator(MazeGenerator.Topology.RANDOM_OBSTACLES, 70, 45, 99);
+		generator.setDensity(0.35);
+		generator.write(mazeFile, MazeGenerator.Format.TEXT);
+		Maze generated = new Maze(mazeFile);
+		ProceduralGrid procedural = new ProceduralGrid(70, 45, 99, 0.35, generated.getStart(), generated.getEnd());
+		for (int y = 0; y < 45; y++) {
+			for (int x = 0; x < 70; x++) {
+				assertEquals(generated.isPassable(x, y), procedural.isPassable(x, y), "procedural tile (" + x + ", " + y + ")");
+			}
+		}
+		assertThrows(IllegalArgumentException.class, ()->{ new ProceduralGrid(10, 10, 0, 0.5, new Point(10, 0), new Point(0, 0)); }, "start out of bounds");
+		
+		// Binary files written by the generator can be mapped directly
+		generator.write(binaryFile, MazeGenerator.Format.BINARY);
+		assertEquals(AstarPathfinding.findPath(generated), AstarPathfinding.findPath(new MappedGrid(binaryFile)), "mapped generator output should give the same path");
+	}
+	
+	// BitboardPathfinding class tests
+	@Test
+	void testBitboardPathfinding()
+		throws IOException
+	{
+		assertThrows(IllegalArgumentException.class, ()->{ BitboardPathfinding.findPath(null); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ BitboardPathfinding.isReachable(null); }, "null param");
+		
+		Maze impossibleMaze = new Maze(impossibleMazeFile);
+		assertEquals(null, BitboardPathfinding.findPath(impossibleMaze), "impossible maze should return null path");
+		assertFalse(BitboardPathfinding.isReachable(impossibleMaze), "impossible maze isn't reachable");
+		
+		Maze maze3 = new Maze(validMazeFiles[2]);
+		assertEquals(maze3Path, BitboardPathfinding.findPath(maze3), "must return shortest path for exampleMazes/validMaze3.txt");
+		assertEquals(maze3Path, BitboardPathfinding.findPath(new BitsetGrid(maze3)), "bitset grids should give the same path");
+		assertTrue(BitboardPathfinding.isReachable(maze3), "validMaze3 is reachable");
+		
+		// Rows wider than one 64 tile word
+		File mazeFile = File.createTempFile("bitboard", ".txt");
+		mazeFile.deleteOnExit();
+		new MazeGenerator(MazeGenerator.Topology.PRIM, 201, 31, 5).write(mazeFile, MazeGenerator.Format.TEXT);
+		Maze wideMaze = new Maze(mazeFile);
+		assertEquals(AstarPathfinding.findPath(wideMaze).size(), BitboardPathfinding.findPath(wideMaze).size(), "must return shortest path across words");
+	}
+	
+	@Test
+	void testLowMemoryPathfinding()
+		throws IOException
+	{
+		assertThrows(IllegalArgumentException.class, ()->{ new LowMemoryPathfinding(LowMemoryPathfinding.MIN_BYTE_LIMIT).findPath(null); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ new LowMemoryPathfinding(LowMemoryPathfinding.MIN_BYTE_LIMIT - 1); }, "byte limit below the minimum");
+		
+		LowMemoryPathfinding pathfinder = new LowMemoryPathfinding(4096);
+		assertEquals(4096, pathfinder.getByteLimit(), "byte limit should be kept");
+		assertEquals(0, pathfinder.getPeakMemoryUsage(), "nothing searched yet");
+		assertEquals(null, pathfinder.findPath(new Maze(impossibleMazeFile)), "impossible maze should return null path");
+		
+		Maze maze3 = new Maze(validMazeFiles[2]);
+		assertEquals(maze3Path.size(), pathfinder.findPath(maze3).size(), "must return shortest path for exampleMazes/validMaze3.txt");
+		assertTrue(pathfinder.getPeakMemoryUsage() > 0 && pathfinder.getPeakMemoryUsage() <= 4096, "memory usage should be within the limit");
+		
+		// An open maze has a frontier far wider than the minimum limit allows
+		File mazeFile = File.createTempFile("lowmemory", ".txt");
+		mazeFile.deleteOnExit();
+		MazeGenerator generator = new MazeGenerator(MazeGenerator.Topology.RANDOM_OBSTACLES, 301, 301, 3);
+		generator.setDensity(0);
+		generator.write(mazeFile, MazeGenerator.Format.TEXT);
+		Maze openMaze = new Maze(mazeFile);
+		assertThrows(IllegalStateException.class, ()->{ new LowMemoryPathfinding(LowMemoryPathfinding.MIN_BYTE_LIMIT).findPath(openMaze); }, "frontier doesn't fit");
+		assertEquals(AstarPathfinding.findPath(openMaze).size(), new LowMemoryPathfinding(1 << 20).findPath(openMaze).size(), "a larger limit should find the path");
+	}
+	
+	@Test
+	void testHeuristics()
+		throws FileNotFoundException
+	{
+		assertEquals(7, AstarPathfinding.Heuristic.MANHATTAN.estimate(0, 0, 3, 4), "Manhattan distance");
+		assertEquals(4, AstarPathfinding.Heuristic.CHEBYSHEV.estimate(0, 0, 3, 4), "Chebyshev distance");
+		assertEquals(5, AstarPathfinding.Heuristic.OCTILE.estimate(0, 0, 3, 4), "octile distance rounded down");
+		assertEquals(10, AstarPathfinding.Heuristic.weighted(AstarPathfinding.Heuristic.MANHATTAN, 150).estimate(0, 0, 3, 4), "weighted distance");
+		assertThrows(IllegalArgumentException.class, ()->{ AstarPathfinding.Heuristic.weighted(null, 150); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ AstarPathfinding.Heuristic.weighted(AstarPathfinding.Heuristic.MANHATTAN, 50); }, "weight below 100%");
+		
+		Maze maze3 = new Maze(validMazeFiles[2]);
+		assertThrows(IllegalArgumentException.class, ()->{ AstarPathfinding.findPath(maze3, null, AstarPathfinding.TieBreaking.LIFO); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ AstarPathfinding.findPath(maze3, AstarPathfinding.Heuristic.MANHATTAN, null); }, "null param");
+		assertEquals(maze3Path, AstarPathfinding.findPath(maze3, AstarPathfinding.Heuristic.CHEBYSHEV, AstarPathfinding.TieBreaking.TILE_INDEX), "defaults should give the same path as findPath");
+		
+		assertThrows(IllegalArgumentException.class, ()->{ new LandmarkHeuristic(null, 2); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ new LandmarkHeuristic(maze3, 0); }, "at least one landmark");
+		LandmarkHeuristic landmarks = new LandmarkHeuristic(maze3, 3);
+		assertEquals(3, landmarks.getLandmarks().size(), "three landmarks should be picked");
+		DistanceField toEnd = new DistanceField(maze3, maze3.getEnd());
+		for (int y = 0; y < maze3.getHeight(); y++) {
+			for (int x = 0; x < maze3.getWidth(); x++) {
+				if (toEnd.getDistance(x, y) == -1) continue;
+				int estimate = landmarks.estimate(x, y, maze3.getEnd().x, maze3.getEnd().y);
+				assertTrue(estimate <= toEnd.getDistance(x, y), "landmark estimate at (" + x + ", " + y + ") must not be more than the real distance");
+			}
+		}
+		assertEquals(maze3Path.size(), AstarPathfinding.findPath(maze3, landmarks, AstarPathfinding.TieBreaking.HIGHER_G).size(), "landmarks should find the shortest path");
+	}
+	
+	@Test
+	void testCompressedPathDatabase()
+		throws IOException
+	{
+		File databaseFile = File.createTempFile("paths", ".cpd");
+		databaseFile.deleteOnExit();
+		assertThrows(IllegalArgumentException.class, ()->{ CompressedPathDatabase.build(null, databaseFile); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ new CompressedPathDatabase(null); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ new CompressedPathDatabase(validMazeFiles[0]); }, "text mazes aren't databases");
+		
+		Maze maze3 = new Maze(validMazeFiles[2]);
+		CompressedPathDatabase.build(maze3, databaseFile);
+		CompressedPathDatabase database = new CompressedPathDatabase(databaseFile);
+		assertThrows(IllegalArgumentException.class, ()->{ database.findPath(null, new Point(1, 1)); }, "null param");
+		assertEquals(maze3Path.size(), database.findPath().size(), "must return shortest path for exampleMazes/validMaze3.txt");
+		assertEquals(null, database.findPath(new Point(1, 1), maze3.getEnd()), "walls have no paths");
+		assertEquals(1, database.findPath(maze3.getEnd(), maze3.getEnd()).size(), "a path to the same tile is just the tile");
+		assertTrue(database.getRunCount() < (long)database.getCellCount() * (database.getCellCount() - 1), "moves should be compressed");
+		
+		CompressedPathDatabase.build(new Maze(impossibleMazeFile), databaseFile);
+		assertEquals(null, new CompressedPathDatabase(databaseFile).findPath(), "impossible maze should return null path");
+	}
+	
+	@Test
+	void testMazeSnapshot()
+		throws IOException
+	{
+		assertThrows(IllegalArgumentException.class, ()->{ MazeSnapshot.open(null, new File("snapshot")); }, "null param");
+		
+		// Work on a copy of the maze so it can be changed
+		File mazeFile = File.createTempFile("snapshot", ".txt");
+		File snapshotFile = new File(mazeFile.getPath() + ".snapshot");
+		mazeFile.deleteOnExit();
+		snapshotFile.deleteOnExit();
+		Files.copy(validMazeFiles[2].toPath(), mazeFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		
+		MazeSnapshot snapshot = MazeSnapshot.open(mazeFile, snapshotFile);
+		assertTrue(snapshot.isRebuilt(), "a missing snapshot should be built");
+		snapshot = MazeSnapshot.open(mazeFile, snapshotFile);
+		assertFalse(snapshot.isRebuilt(), "a matching snapshot should be mapped without rebuilding");
+		
+		Maze maze3 = new Maze(mazeFile);
+		Grid grid = snapshot.getGrid();
+		ConnectedComponents components = new ConnectedComponents(maze3);
+		DistanceField toEnd = new DistanceField(maze3, maze3.getEnd());
+		assertEquals(maze3.getStart(), grid.getStart(), "start should be stored");
+		assertEquals(maze3.getEnd(), grid.getEnd(), "end should be stored");
+		assertEquals(components.getComponentCount(), snapshot.getComponentCount(), "component count should be stored");
+		for (int y = 0; y < maze3.getHeight(); y++) {
+			for (int x = 0; x < maze3.getWidth(); x++) {
+				assertEquals(maze3.isPassable(x, y), grid.isPassable(x, y), "walls should be stored");
+				assertEquals(components.getComponent(x, y), snapshot.getComponent(x, y), "components should be stored");
+				assertEquals(toEnd.getDistance(x, y), snapshot.getDistanceToEnd(x, y), "distances to the end should be stored");
+			}
+		}
+		assertEquals(new LandmarkHeuristic(maze3, MazeSnapshot.LANDMARK_COUNT).getLandmarks(), snapshot.getLandmarks(), "landmarks should be stored");
+		assertEquals(maze3Path, AstarPathfinding.findPath(grid), "the stored grid should give the same path");
+		assertEquals(maze3Path.size(), AstarPathfinding.findPath(grid, snapshot.getLandmarkHeuristic(), AstarPathfinding.TieBreaking.HIGHER_G).size(), "stored landmarks should find the shortest path");
+		
+		// A changed maze file is noticed from its hash
+		Files.copy(validMazeFiles[0].toPath(), mazeFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		snapshot = MazeSnapshot.open(mazeFile, snapshotFile);
+		assertTrue(snapshot.isRebuilt(), "a changed maze should be rebuilt");
+		assertEquals(maze1Path, AstarPathfinding.findPath(snapshot.getGrid()), "the rebuilt snapshot should have the new maze");
+		
+		// A damaged snapshot fails its checksum
+		try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+			file.seek(file.length() - 1);
+			int last = file.read();
+			file.seek(file.length() - 1);
+			file.write(last ^ 1);
+		}
+		assertTrue(MazeSnapshot.open(mazeFile, snapshotFile).isRebuilt(), "a damaged snapshot should be rebuilt");
+		assertFalse(MazeSnapshot.open(mazeFile, snapshotFile).isRebuilt(), "the repaired snapshot should be used");
+	}
+	
+	@Test
+	void testShardedPathfinding()
+		throws IOException
+	{
+		assertThrows(IllegalArgumentException.class, ()->{ ShardedPathfinding.launch((Grid)null, 2, 2); }, "null param");
+		Maze maze3 = new Maze(validMazeFiles[2]);
+		assertThrows(IllegalArgumentException.class, ()->{ ShardedPathfinding.launch(maze3, 0, 2); }, "no shard columns");
+		assertThrows(IllegalArgumentException.class, ()->{ ShardedPathfinding.launch(maze3, maze3.getWidth() + 1, 1); }, "empty shards");
+		
+		try (ShardedPathfinding pathfinding = ShardedPathfinding.launch(maze3, 2, 2)) {
+			assertTrue(pathfinding.getBorderTileCount() > 0, "shards should share border tiles");
+			assertEquals(maze3Path.size(), pathfinding.findPath().size(), "sharded search should find the shortest path");
+			assertEquals(1, pathfinding.findPath(maze3.getStart(), maze3.getStart()).size(), "a tile should reach itself");
+			assertNull(pathfinding.findPath(maze3.getStart(), new Point(-1, 0)), "tiles outside the maze have no path");
+			assertThrows(IllegalArgumentException.class, ()->{ pathfinding.findPath(null, maze3.getEnd()); }, "null param");
+		}
+		
+		// A single shard has no borders and still searches inside itself
+		Maze maze1 = new Maze(validMazeFiles[0]);
+		try (ShardedPathfinding pathfinding = ShardedPathfinding.launch(maze1, 1, 1)) {
+			assertEquals(0, pathfinding.getBorderTileCount(), "one shard has no borders");
+			assertEquals(maze1Path.size(), pathfinding.findPath().size(), "one shard should find the shortest path");
+		}
+	}
+	
+	@Test
+	void testMazePatch()
+		throws IOException
+	{
+		assertThrows(IllegalArgumentException.class, ()->{ MazePatch.parse(null); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ MazePatch.parse("1 2"); }, "missing tile");
+		assertThrows(IllegalArgumentException.class, ()->{ MazePatch.parse("1 2 x"); }, "invalid tile");
+		assertThrows(IllegalArgumentException.class, ()->{ MazePatch.parse("a 2 #"); }, "invalid number");
+		assertThrows(IllegalArgumentException.class, ()->{ MazePatch.parse("0 0 0 1 #"); }, "empty rectangle");
+		MazePatch patch = MazePatch.parse("1 0 #\n0 1 2 3 *\n");
+		assertEquals(2, patch.getChangeCount(), "one change per line");
+		assertEquals(new Rectangle(0, 1, 2, 3), patch.getRegion(1), "rectangle change");
+		assertEquals(Maze.TileType.WALL, patch.getTileType(0), "tile change");
+		assertEquals("1 0 #\n0 1 2 3 *\n", patch.toString(), "patch should be written in its own format");
+		
+		Maze maze3 = new Maze(validMazeFiles[2]);
+		List<List<Rectangle>> changes = new ArrayList<>();
+		maze3.addChangeListener((maze, regions) -> changes.add(regions));
+		ConnectedComponents components = new ConnectedComponents(maze3);
+		DistanceField toEnd = new DistanceField(maze3, maze3.getEnd());
+		PathCache cache = new PathCache(maze3, 16);
+		assertEquals(maze3Path.size(), cache.findPath(maze3.getStart(), maze3.getEnd()).size(), "cache should search for new paths");
+		assertEquals(maze3Path.size(), cache.findPath(maze3.getStart(), maze3.getEnd()).size(), "cache should remember paths");
+		assertEquals(1, cache.getHitCount(), "second query should be a hit");
+		
+		// Patches that don't touch the path keep it cached
+		maze3.apply(MazePatch.parse("1 1 #"));
+		assertEquals(1, maze3.getVersion(), "applying a patch should bump the version");
+		assertEquals(List.of(List.of(new Rectangle(1, 1, 1, 1))), changes, "listeners should get the patched regions");
+		assertFalse(toEnd.isChangedBy(maze3, changes.get(0)), "a wall set to a wall changes no distances");
+		maze3.apply(MazePatch.parse("4 2 #"));
+		assertTrue(toEnd.isChangedBy(maze3, changes.get(1)), "closing a reachable tile changes distances");
+		assertEquals(1, cache.size(), "the path should still be cached");
+		
+		// Cutting the only route drops the path and splits the components
+		maze3.apply(MazePatch.parse("6 3 #"));
+		components.update(maze3, changes.get(2));
+		assertFalse(components.isConnected(maze3.getStart(), maze3.getEnd()), "components should split");
+		assertEquals(new ConnectedComponents(maze3).getComponentCount(), components.getComponentCount(), "component count after a split");
+		assertNull(cache.findPath(maze3.getStart(), maze3.getEnd()), "cut path should not be returned");
+		assertEquals(0, cache.size(), "cut path should be dropped");
+		maze3.apply(MazePatch.parse("6 3 *"));
+		components.update(maze3, changes.get(3));
+		assertTrue(components.isConnected(maze3.getStart(), maze3.getEnd()), "components should join");
+		assertEquals(maze3Path.size(), cache.findPath(maze3.getStart(), maze3.getEnd()).size(), "reopened path should be found");
+		
+		// Rejected patches change nothing
+		String before = maze3.toString();
+		assertThrows(IllegalArgumentException.class, ()->{ maze3.apply(null); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ maze3.apply(MazePatch.parse("6 0 2 1 *")); }, "outside the maze");
+		assertThrows(IllegalArgumentException.class, ()->{ maze3.apply(MazePatch.parse("3 3 *\n0 0 #")); }, "no start left");
+		assertEquals(before, maze3.toString(), "rejected patches should be undone");
+		assertEquals(4, maze3.getVersion(), "rejected patches should not bump the version");
+		
+		// New starts go after the existing ones
+		maze3.apply(MazePatch.parse("6 0 1"));
+		assertEquals(List.of(new Point(0, 0), new Point(6, 0)), maze3.getStarts(), "new start should be added last");
+		maze3.apply(MazePatch.parse("0 0 *"));
+		assertEquals(new Point(6, 0), maze3.getStart(), "overwritten start should be replaced by the next one");
+	}
+	
+	@Test
+	void testPathCursor()
+		throws IOException
+	{
+		assertThrows(IllegalArgumentException.class, ()->{ AstarPathfinding.findPathCursor(null); }, "null param");
+		assertNull(AstarPathfinding.findPathCursor(new Maze(impossibleMazeFile)), "impossible maze should have no cursor");
+		
+		Maze maze3 = new Maze(validMazeFiles[2]);
+		try (PathCursor cursor = AstarPathfinding.findPathCursor(maze3)) {
+			assertEquals(maze3Path.size(), cursor.size(), "cursor size should be the path size");
+			Path streamed = new Path();
+			cursor.forEachRemaining(streamed::push);
+			assertEquals(maze3Path, streamed, "cursor should stream the path in order");
+			assertFalse(cursor.hasNext(), "cursor should be used up");
+			assertThrows(NoSuchElementException.class, ()->{ cursor.next(); }, "no tiles left");
+		}
+		
+		PathCursor cursor = AstarPathfinding.findPathCursor(maze3);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		assertEquals(maze3Path.size(), cursor.writeTo(Channels.newChannel(bytes)), "every tile should be written");
+		DataInputStream written = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		for (Iterator<Point> moves = maze3Path.iterator(); moves.hasNext(); ) {
+			assertEquals(moves.next(), new Point(written.readInt(), written.readInt()), "tiles should be written in order");
+		}
+		cursor.close();
+		assertFalse(cursor.hasNext(), "closed cursor has no tiles");
+		assertThrows(IllegalStateException.class, ()->{ cursor.next(); }, "closed cursor");
+		
+		assertEquals(validMaze3StringWithPath, maze3.toString(AstarPathfinding.findPathCursor(maze3)), "toString should draw a cursor's path");
+		assertThrows(IllegalArgumentException.class, ()->{ new Maze(validMazeFiles[0]).toString(AstarPathfinding.findPathCursor(maze3)); }, "cursor from another maze");
+		
+		// A corridor as wide as validMaze3 but only one row tall
+		File corridorFile = File.createTempFile("corridor", ".txt");
+		corridorFile.deleteOnExit();
+		Files.writeString(corridorFile.toPath(), "1*****2");
+		PathCursor corridorCursor = AstarPathfinding.findPathCursor(new Maze(corridorFile));
+		assertThrows(IllegalArgumentException.class, ()->{ maze3.toString(corridorCursor); }, "cursor from a maze of another height");
+		corridorCursor.close();
+	}
+	
+	@Test
+	void testMultipleGoals()
+		throws IOException
+	{
+		Maze maze = new Maze(new File("exampleMazes/multipleGoalsMaze.txt"));
+		assertEquals(List.of(new Point(0, 0), new Point(4, 2)), maze.getStarts(), "every start should be read in file order");
+		assertEquals(List.of(new Point(9, 0), new Point(0, 2), new Point(6, 4)), maze.getEnds(), "every end should be read in file order");
+		assertEquals(new Point(0, 0), maze.getStart(), "getStart should be the first start");
+		assertEquals(new Point(9, 0), maze.getEnd(), "getEnd should be the first end");
+		assertEquals(maze.getEnds(), new BitsetGrid(maze).getEnds(), "copied grids should keep every end");
+		assertEquals(List.of(new Point(1, 1)), new Maze(validMazeFiles[0]).getStarts(), "a single start is a list of one");
+		
+		assertThrows(IllegalArgumentException.class, ()->{ AstarPathfinding.findNearestPaths(maze, null, maze.getEnds(), 1); }, "null param");
+		assertThrows(IllegalArgumentException.class, ()->{ AstarPathfinding.findNearestPaths(maze, List.of(), maze.getEnds(), 1); }, "no starts");
+		assertThrows(IllegalArgumentException.class, ()->{ AstarPathfinding.findNearestPaths(maze, maze.getStarts(), maze.getEnds(), 0); }, "k below 1");
+		assertThrows(IllegalArgumentException.class, ()->{ AstarPathfinding.findPath(maze, maze.getStarts(), List.of(new Point(10, 0))); }, "goal outside the maze");
+		assertThrows(IllegalArgumentException.class, ()->{ AstarPathfinding.findPath(maze, List.of(new Point(5, 0)), maze.getEnds()); }, "start on a wall");
+		assertThrows(IllegalArgumentException.class, ()->{ AstarPathfinding.findNearestPaths(maze, maze.getStarts(), List.of(new Point(9, 0), new Point(0, 1)), 2); }, "goal on a wall");
+		
+		// Distance from the closest start to each end
+		List<Integer> distances = new ArrayList<>();
+		for (Point end : maze.getEnds()) {
+			DistanceField field = new DistanceField(maze, end);
+			int closest = Integer.MAX_VALUE;
+			for (Point start : maze.getStarts()) {
+				closest = Math.min(closest, field.getDistance(start.x, start.y));
+			}
+			distances.add(closest);
+		}
+		
+		// (0, 2) is four moves from the second start
+		Path best = AstarPathfinding.findPath(maze);
+		assertEquals(5, best.size(), "must return the shortest path between any start and any end");
+		assertEquals(best, AstarPathfinding.findPath(maze, maze.getStarts(), maze.getEnds()), "findPath should use every start and end");
+		
+		List<Path> nearest = AstarPathfinding.findNearestPaths(maze, maze.getStarts(), maze.getEnds(), 3);
+		List<Integer> sorted = new ArrayList<>(distances);
+		Collections.sort(sorted);
+		assertEquals(3, nearest.size(), "every end can be reached");
+		for (int i = 0; i < nearest.size(); i++) {
+			assertEquals(sorted.get(i) + 1, nearest.get(i).size(), "path " + i + " should be the next closest end");
+		}
+		assertEquals(1, AstarPathfinding.findNearestPaths(maze, maze.getStarts(), maze.getEnds(), 1).size(), "k limits the paths returned");
+		assertEquals(1, AstarPathfinding.findPath(maze, maze.getStarts(), maze.getStarts()).size(), "a start that is a goal is a path of one tile");
+	}
 }